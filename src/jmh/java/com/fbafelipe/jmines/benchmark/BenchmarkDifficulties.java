@@ -0,0 +1,25 @@
+package com.fbafelipe.jmines.benchmark;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+
+// Benchmark parameters are either a preset name or a custom WIDTHxHEIGHTxMINES difficulty
+final class BenchmarkDifficulties {
+	private BenchmarkDifficulties() {}
+
+	static Difficulty parse(String name) {
+		switch (name) {
+			case "EASY":
+				return Difficulty.EASY;
+			case "MEDIUM":
+				return Difficulty.MEDIUM;
+			case "HARD":
+				return Difficulty.HARD;
+			default:
+				String values[] = name.split("x");
+				if (values.length != 3)
+					throw new IllegalArgumentException("Invalid difficulty " + name);
+
+				return new Difficulty(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]));
+		}
+	}
+}
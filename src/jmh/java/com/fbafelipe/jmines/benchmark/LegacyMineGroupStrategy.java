@@ -0,0 +1,183 @@
+package com.fbafelipe.jmines.benchmark;
+
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Solver;
+import com.fbafelipe.jmines.domain.Tile;
+import com.fbafelipe.jmines.domain.TileMark;
+import com.fbafelipe.jmines.domain.TileQueueStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The MineGroupStrategy as it was before the bitmask rewrite, with List<Tile> mine groups, kept to compare both
+class LegacyMineGroupStrategy extends TileQueueStrategy {
+	// Computed when needed, dropped when a neighbour changes
+	private MineGroup mMineGroups[];
+
+	private final SolverContext mContext = new LegacyContext();
+	private Solver.Step mStep;
+
+	public LegacyMineGroupStrategy(MinesGame game) {
+		// the mine groups of the neighbours depend on their own neighbours
+		super(game, 2);
+		mMineGroups = new MineGroup[game.getWidth() * game.getHeight()];
+	}
+
+	@Override
+	public String getName() {
+		return "mine groups";
+	}
+
+	@Override
+	public void onTileChanged(int x, int y) {
+		int xEnd = Math.min(x + 2, mGame.getWidth());
+		int yEnd = Math.min(y + 2, mGame.getHeight());
+		for (int ny = Math.max(y - 1, 0); ny < yEnd; ++ny) {
+			for (int nx = Math.max(x - 1, 0); nx < xEnd; ++nx)
+				mMineGroups[ny * mGame.getWidth() + nx] = null;
+		}
+
+		super.onTileChanged(x, y);
+	}
+
+	// It stops at the first step of the tile
+	@Override
+	public void solveTile(int x, int y, List<Solver.Step> steps) {
+		Solver.Step step = solveFirst(x, y);
+		if (step != null)
+			steps.add(step);
+	}
+
+	private Solver.Step solveFirst(final int x, final int y) {
+		if (!mGame.isRevealed(x, y) || mGame.getTile(x, y) == 0)
+			return null;
+
+		final SolverContext context = mContext;
+		mStep = null;
+		countFlagsAndCandidates(x, y, context);
+
+		if (context.firstCandidate == null)
+			return null;
+
+		mGame.visitNeighbours(x, y, (nx, ny) -> {
+			if (mStep != null)
+				return;
+
+			MineGroup mineGroup = getMineGroup(nx, ny);
+			if (mineGroup != null) {
+				int tilesIsNeighbour = 0;
+				int tilesIsNotNeighbour = 0;
+				for (Tile t : mineGroup.tiles) {
+					if (t.isNeighbour(x, y))
+						++tilesIsNeighbour;
+					else
+						++tilesIsNotNeighbour;
+				}
+				int minMinesFromGroup = mineGroup.mines - tilesIsNotNeighbour;
+				if (minMinesFromGroup > 0) {
+					if (context.flags + minMinesFromGroup == mGame.getTile(x, y) && tilesIsNeighbour < context.candidateTiles) {
+						Tile tile = findFirstNeighbourNotInMineGroup(x, y, mineGroup);
+						mStep = new Solver.Step(tile, Solver.StepType.OPEN);
+					}
+					else {
+						int maxMinesFromGroup = Math.min(mineGroup.mines, tilesIsNeighbour);
+						int neighboursNotInGroup = countNeighboursNotInMineGroup(x, y, mineGroup);
+						if (neighboursNotInGroup > 0 && minMinesFromGroup == maxMinesFromGroup && context.flags + maxMinesFromGroup + neighboursNotInGroup == mGame.getTile(x, y)) {
+							Tile tile = findFirstNeighbourNotInMineGroup(x, y, mineGroup);
+							mStep = new Solver.Step(tile, Solver.StepType.FLAG);
+						}
+					}
+				}
+			}
+		});
+
+		return mStep;
+	}
+
+	private Tile findFirstNeighbourNotInMineGroup(int x, int y, final MineGroup mineGroup) {
+		final Tile[] tile = {null};
+
+		mGame.visitNeighbours(x, y, (nx, ny) -> {
+			if (tile[0] != null || mGame.isRevealed(nx, ny) || mGame.getTileMark(nx, ny) == TileMark.FLAG)
+				return;
+
+			boolean isInGroup = false;
+			for (Tile t : mineGroup.tiles) {
+				if (t.equals(nx, ny)) {
+					isInGroup = true;
+					break;
+				}
+			}
+
+			if (!isInGroup)
+				tile[0] = new Tile(nx, ny);
+		});
+
+		return tile[0];
+	}
+
+	private int countNeighboursNotInMineGroup(int x, int y, final MineGroup mineGroup) {
+		final int[] count = {0};
+
+		mGame.visitNeighbours(x, y, (nx, ny) -> {
+			if (mGame.isRevealed(nx, ny) || mGame.getTileMark(nx, ny) == TileMark.FLAG)
+				return;
+
+			boolean isInGroup = false;
+			for (Tile t : mineGroup.tiles) {
+				if (t.equals(nx, ny)) {
+					isInGroup = true;
+					break;
+				}
+			}
+
+			if (!isInGroup)
+				++count[0];
+		});
+
+		return count[0];
+	}
+
+	// The hidden, unflagged neighbours of a revealed tile and how many mines are among them
+	private MineGroup getMineGroup(int x, int y) {
+		if (!mGame.isRevealed(x, y) || mGame.getTile(x, y) <= 0)
+			return null;
+
+		int index = y * mGame.getWidth() + x;
+		if (mMineGroups[index] == null) {
+			final int[] flags = {0};
+			final List<Tile> tiles = new ArrayList<>();
+			mGame.visitNeighbours(x, y, (nx, ny) -> {
+				if (!mGame.isRevealed(nx, ny)) {
+					if (mGame.getTileMark(nx, ny) == TileMark.FLAG)
+						++flags[0];
+					else
+						tiles.add(new Tile(nx, ny));
+				}
+			});
+
+			int missingMines = mGame.getTile(x, y) - flags[0];
+			if (missingMines <= 0 || tiles.isEmpty())
+				return null;
+
+			MineGroup group = new MineGroup(missingMines);
+			group.tiles.addAll(tiles);
+			mMineGroups[index] = group;
+		}
+
+		return mMineGroups[index];
+	}
+
+	private static class LegacyContext extends SolverContext {
+	}
+
+	private static class MineGroup {
+		private int mines;
+		public List<Tile> tiles;
+
+		public MineGroup(int m) {
+			mines = m;
+			tiles = new ArrayList<>();
+		}
+	}
+}
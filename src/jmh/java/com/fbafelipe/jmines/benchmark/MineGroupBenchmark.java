@@ -0,0 +1,99 @@
+package com.fbafelipe.jmines.benchmark;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.IntList;
+import com.fbafelipe.jmines.domain.MineGroupStrategy;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Solver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Bitmask mine groups against the List<Tile> implementation they replaced. Each operation checks every frontier
+// tile of a mid game position. The legacy strategy keeps its mine group cache between operations, which is its
+// best case, and stops at the first step of each tile while the bitmask one finds all of them.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MineGroupBenchmark {
+	@Param({"HARD", "100x100x1600", "480x256x20000"})
+	public String difficulty;
+
+	private IntList mFrontier;
+
+	private BitmaskStrategy mBitmask;
+	private LegacyMineGroupStrategy mLegacy;
+
+	private final List<Solver.Step> mSteps = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		for (long seed = 0; ; ++seed) {
+			MinesGame game = createPosition(seed);
+			if (game.isGameOver())
+				continue;
+
+			mFrontier = new IntList();
+			game.visitFrontier((x, y) -> {
+				mFrontier.add(x);
+				mFrontier.add(y);
+			});
+
+			mBitmask = new BitmaskStrategy(game);
+			mLegacy = new LegacyMineGroupStrategy(game);
+			return;
+		}
+	}
+
+	// Plays with the default solver until 30% of the safe tiles are revealed
+	private MinesGame createPosition(long seed) {
+		final Difficulty parsed = BenchmarkDifficulties.parse(difficulty);
+		final MinesGame game = new MinesGame(parsed, seed);
+		int revealedTiles = (parsed.width * parsed.height - parsed.mines) * 3 / 10;
+
+		try (Solver solver = new Solver(game)) {
+			while (!game.isGameOver() && game.getRevealedTiles() < revealedTiles) {
+				Solver.Step step = solver.hint();
+				if (step == null)
+					step = solver.guess();
+				step.execute(game, (x, y) -> {});
+			}
+		}
+		return game;
+	}
+
+	@Benchmark
+	public void bitmask(Blackhole blackhole) {
+		for (int i = 0; i < mFrontier.size(); i += 2) {
+			mSteps.clear();
+			mBitmask.solveTile(mFrontier.get(i), mFrontier.get(i + 1), mSteps);
+			blackhole.consume(mSteps.size());
+		}
+	}
+
+	@Benchmark
+	public void legacy(Blackhole blackhole) {
+		for (int i = 0; i < mFrontier.size(); i += 2) {
+			mSteps.clear();
+			mLegacy.solveTile(mFrontier.get(i), mFrontier.get(i + 1), mSteps);
+			blackhole.consume(mSteps.size());
+		}
+	}
+
+	private static class BitmaskStrategy extends MineGroupStrategy {
+		public BitmaskStrategy(MinesGame game) {
+			super(game);
+		}
+
+		@Override
+		public void solveTile(int x, int y, List<Solver.Step> steps) {
+			super.solveTile(x, y, steps);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.fbafelipe.jmines.benchmark;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.MinesGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Throughput is reported in games/s, run with -prof gc (the default for the jmh task) to get the allocations per game
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinesGameBenchmark {
+	@Param({"EASY", "MEDIUM", "HARD", "100x100x1600", "480x256x20000", "1000x1000x150000"})
+	public String difficulty;
+
+	private Difficulty mDifficulty;
+	private Difficulty mEmptyDifficulty;
+
+	private long mSeed = 0;
+
+	@Setup
+	public void setup() {
+		mDifficulty = BenchmarkDifficulties.parse(difficulty);
+		mEmptyDifficulty = new Difficulty(mDifficulty.width, mDifficulty.height, 0);
+	}
+
+	@Benchmark
+	public MinesGame newGame() {
+		return new MinesGame(mDifficulty, mSeed++);
+	}
+
+	// The first open places the mines and usually starts a cascade
+	@Benchmark
+	public MinesGame firstOpen() {
+		MinesGame game = new MinesGame(mDifficulty, mSeed++);
+		game.openTile(mDifficulty.width / 2, mDifficulty.height / 2, (x, y) -> {});
+		return game;
+	}
+
+	// Without mines the first open reveals the whole board
+	@Benchmark
+	public MinesGame fullCascade() {
+		MinesGame game = new MinesGame(mEmptyDifficulty, mSeed++);
+		game.openTile(0, 0, (x, y) -> {});
+		return game;
+	}
+}
@@ -0,0 +1,65 @@
+package com.fbafelipe.jmines.benchmark;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.GameState;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Solver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Throughput is reported in hints/s and games/s, run with -prof gc (the default for the jmh task) to get the allocations
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+	@Param({"EASY", "MEDIUM", "HARD", "100x100x1600", "480x256x20000"})
+	public String difficulty;
+
+	private Difficulty mDifficulty;
+
+	// A game after the first open, used to measure a single hint
+	private MinesGame mOpenedGame;
+
+	private long mSeed = 0;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		mDifficulty = BenchmarkDifficulties.parse(difficulty);
+
+		mOpenedGame = new MinesGame(mDifficulty, mSeed++);
+		mOpenedGame.openTile(mDifficulty.width / 2, mDifficulty.height / 2, (x, y) -> {});
+	}
+
+	// A hint from a new solver, which has to check the whole frontier
+	@Benchmark
+	public Solver.Step hint() {
+		try (Solver solver = new Solver(mOpenedGame)) {
+			return solver.hint();
+		}
+	}
+
+	// Every deduction from a new solver, all the tiers check the whole frontier
+	@Benchmark
+	public List<Solver.Step> allDeductions() {
+		try (Solver solver = new Solver(mOpenedGame)) {
+			return solver.allDeductions();
+		}
+	}
+
+	@Benchmark
+	public GameState autoSolve() {
+		final MinesGame game = new MinesGame(mDifficulty, mSeed++);
+		try (Solver solver = new Solver(game)) {
+			solver.autoSolve(step -> {
+				step.execute(game, (x, y) -> {});
+				return true;
+			});
+		}
+		return game.getGameState();
+	}
+}
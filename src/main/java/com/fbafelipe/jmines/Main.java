@@ -1,11 +1,32 @@
 package com.fbafelipe.jmines;
 
+import com.fbafelipe.jmines.server.GameServer;
 import com.fbafelipe.jmines.ui.Mvp;
 import com.fbafelipe.jmines.ui.Presenter;
 import com.fbafelipe.jmines.ui.View;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 public class Main {
-	public static void main(String args[]) {
+	// --server [port] [shards] [spill directory] starts the headless GameServer on the loopback address instead
+	// of the UI
+	public static void main(String args[]) throws IOException {
+		if (args.length > 0 && args[0].equals("--server")) {
+			int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+			int shards = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+			GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), shards);
+			if (args.length > 3)
+				server.setSpillDirectory(Files.createDirectories(Paths.get(args[3])));
+			server.start();
+			System.out.println("Listening on port " + server.getPort() + " with " + shards + " shards");
+			return;
+		}
+
 		Mvp.View view = new View();
 		Mvp.Presenter presenter = new Presenter();
 
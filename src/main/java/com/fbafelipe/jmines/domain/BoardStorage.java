@@ -0,0 +1,11 @@
+package com.fbafelipe.jmines.domain;
+
+// Where a MinesGame keeps its cells, a byte each
+public enum BoardStorage {
+	// Java byte arrays
+	HEAP,
+
+	// Direct ByteBuffers, outside of the heap, so the GC never copies nor scans them. They are limited by
+	// -XX:MaxDirectMemorySize, which is the maximum heap size unless set.
+	OFF_HEAP
+}
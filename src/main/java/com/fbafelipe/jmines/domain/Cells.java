@@ -0,0 +1,24 @@
+package com.fbafelipe.jmines.domain;
+
+// The cells of a MinesGame, see there for their layout. They are split in pages shared with the snapshots, a page
+// is copied before its first change after a snapshot, by whichever game changes it.
+abstract class Cells {
+	public static Cells allocate(BoardStorage storage, int size) {
+		return storage == BoardStorage.HEAP ? new HeapCells(size) : new DirectCells(size);
+	}
+
+	public abstract BoardStorage getStorage();
+
+	public abstract int size();
+
+	public abstract int get(int index);
+
+	public abstract void set(int index, int cell);
+
+	// Sets every cell to 0
+	public abstract void clear();
+
+	// A copy sharing the pages with these cells. It changes the page ownership, so it must be called by the
+	// thread that changes these cells.
+	public abstract Cells share();
+}
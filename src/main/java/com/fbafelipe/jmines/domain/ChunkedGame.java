@@ -0,0 +1,386 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// A board without size, split in CHUNK_SIZE x CHUNK_SIZE chunks with the same number of mines each. The mines of a
+// chunk are placed the first time one of its tiles, or a neighbour of one, is opened, from the seed and the chunk
+// coordinates only, so the board is the same whichever way it is explored. Only the chunks touched are kept.
+// The game can be lost but not won. The coordinates go from MIN_COORDINATE to MAX_COORDINATE, in both axes.
+public class ChunkedGame {
+	public static final int CHUNK_SHIFT = 5;
+	public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int CHUNK_TILES = CHUNK_SIZE * CHUNK_SIZE;
+
+	public static final int MIN_COORDINATE = -(1 << 30);
+	public static final int MAX_COORDINATE = (1 << 30) - 1;
+
+	// Below about a tenth of mines the empty areas may never end, and neither would the cascade opening them
+	public static final int MIN_MINES_PER_CHUNK = CHUNK_TILES / 8;
+
+	// Each tile is packed in a byte, in a layout of its own, not the one of MinesGame: bits 0-3 are the number of
+	// neighbour mines, only set once the tile is revealed, bit 4 is set when the tile is revealed, bits 5-6 hold
+	// the TileMark ordinal and bit 7 is set on the mines, once placed. There is no frontier bit.
+	private static final int TILE_VALUE_MASK = 0x0F;
+	private static final int TILE_REVEALED = 0x10;
+	private static final int TILE_MARK_SHIFT = 5;
+	private static final int TILE_MARK_MASK = 0x60;
+	private static final int TILE_MINE = 0x80;
+
+	private static final TileMark MARKS[] = TileMark.values();
+
+	private final long mSeed;
+	private final int mMinesPerChunk;
+
+	private final Map<Long, Chunk> mChunks = new HashMap<>();
+
+	// Most lookups are on the same chunk as the previous one
+	private Chunk mLastChunk = null;
+
+	private GameState mGameState = GameState.IN_PROGRESS;
+	private Tile mBlowedMine = null;
+
+	// The first open is never a mine, its chunk leaves it out when placing its mines
+	private Tile mFirstOpen = null;
+
+	private final IntList mOpenStack = new IntList();
+
+	private long mFlags = 0;
+	private long mRevealedCount = 0;
+	private int mMinedChunks = 0;
+
+	public ChunkedGame(long seed, int minesPerChunk) {
+		if (minesPerChunk < MIN_MINES_PER_CHUNK || minesPerChunk >= CHUNK_TILES)
+			throw new IllegalArgumentException("Invalid number of mines");
+
+		mSeed = seed;
+		mMinesPerChunk = minesPerChunk;
+	}
+
+	public long getSeed() {
+		return mSeed;
+	}
+
+	public int getMinesPerChunk() {
+		return mMinesPerChunk;
+	}
+
+	public boolean isStarted() {
+		return mFirstOpen != null;
+	}
+
+	public boolean isGameOver() {
+		return mGameState != GameState.IN_PROGRESS;
+	}
+
+	public GameState getGameState() {
+		return mGameState;
+	}
+
+	public Tile getBlowedMine() {
+		return mBlowedMine;
+	}
+
+	public long getFlags() {
+		return mFlags;
+	}
+
+	// Safe tiles revealed so far
+	public long getRevealedTiles() {
+		return mRevealedCount;
+	}
+
+	// The chunks kept, the memory taken is proportional to them
+	public int getChunkCount() {
+		return mChunks.size();
+	}
+
+	// The chunks with their mines placed
+	public int getMinedChunks() {
+		return mMinedChunks;
+	}
+
+	// revealed is called for each revealed tile, in the order they are revealed
+	public void openTile(int x, int y, MinesGame.TileVisitor revealed) {
+		checkCoordinates(x, y);
+		if (isGameOver())
+			return;
+
+		// a marked tile is not opened, the game starts at the first tile really opened
+		if (mFirstOpen == null) {
+			if (getTileMark(x, y) != TileMark.NOTHING)
+				return;
+			mFirstOpen = new Tile(x, y);
+		}
+
+		open(x, y, revealed);
+	}
+
+	private void open(int x, int y, MinesGame.TileVisitor revealed) {
+		Chunk chunk = getMinedChunk(x, y);
+		int index = index(x, y);
+		int cell = chunk.cells[index];
+		if ((cell & (TILE_REVEALED | TILE_MARK_MASK)) != 0)
+			return;
+
+		if ((cell & TILE_MINE) != 0) {
+			chunk.cells[index] = (byte) (cell | TILE_REVEALED);
+			revealed.visit(x, y);
+
+			mGameState = GameState.OVER_DEFEAT;
+			mBlowedMine = new Tile(x, y);
+			return;
+		}
+
+		// Depth first flood fill, each stack frame is (x, y, next neighbour to visit), as in MinesGame
+		mOpenStack.clear();
+		revealSafeTile(x, y, revealed);
+
+		while (!mOpenStack.isEmpty()) {
+			int frame = mOpenStack.size() - 3;
+			int fx = mOpenStack.get(frame);
+			int fy = mOpenStack.get(frame + 1);
+
+			int neighbour = mOpenStack.get(frame + 2);
+			int nx = 0;
+			int ny = 0;
+			for (; neighbour < 9; ++neighbour) {
+				nx = fx + neighbour / 3 - 1;
+				ny = fy + neighbour % 3 - 1;
+				if (neighbour != 4 && isInside(nx, ny)) {
+					int neighbourCell = getMinedChunk(nx, ny).cells[index(nx, ny)];
+					if ((neighbourCell & (TILE_REVEALED | TILE_MARK_MASK)) == 0)
+						break;
+				}
+			}
+
+			if (neighbour == 9) {
+				mOpenStack.removeLast(3);
+				continue;
+			}
+
+			mOpenStack.set(frame + 2, neighbour + 1);
+			revealSafeTile(nx, ny, revealed);
+		}
+	}
+
+	private void revealSafeTile(int x, int y, MinesGame.TileVisitor revealed) {
+		int value = countMines(x, y);
+
+		Chunk chunk = getMinedChunk(x, y);
+		int index = index(x, y);
+		chunk.cells[index] = (byte) (chunk.cells[index] | TILE_REVEALED | value);
+		revealed.visit(x, y);
+
+		++mRevealedCount;
+
+		if (value == 0) {
+			mOpenStack.add(x);
+			mOpenStack.add(y);
+			mOpenStack.add(0);
+		}
+	}
+
+	private int countMines(int x, int y) {
+		int mines = 0;
+		for (int ny = y - 1; ny <= y + 1; ++ny) {
+			for (int nx = x - 1; nx <= x + 1; ++nx) {
+				if ((nx != x || ny != y) && isInside(nx, ny) && isMine(nx, ny))
+					++mines;
+			}
+		}
+		return mines;
+	}
+
+	private boolean isMine(int x, int y) {
+		return (getMinedChunk(x, y).cells[index(x, y)] & TILE_MINE) != 0;
+	}
+
+	public void openNeighbours(int x, int y, MinesGame.TileVisitor revealed) {
+		checkCoordinates(x, y);
+		if (isGameOver() || !isRevealed(x, y))
+			return;
+
+		int flags = 0;
+		int questionMarks = 0;
+		for (int ny = y - 1; ny <= y + 1; ++ny) {
+			for (int nx = x - 1; nx <= x + 1; ++nx) {
+				if ((nx == x && ny == y) || !isInside(nx, ny))
+					continue;
+
+				TileMark mark = getTileMark(nx, ny);
+				if (mark == TileMark.FLAG)
+					++flags;
+				else if (mark == TileMark.QUESTION_MARK)
+					++questionMarks;
+			}
+		}
+
+		if (flags != getTile(x, y) || questionMarks != 0)
+			return;
+
+		for (int ny = y - 1; ny <= y + 1; ++ny) {
+			for (int nx = x - 1; nx <= x + 1; ++nx) {
+				if ((nx != x || ny != y) && isInside(nx, ny))
+					open(nx, ny, revealed);
+			}
+		}
+	}
+
+	public void flagTile(int x, int y, TileMark setMark) {
+		checkCoordinates(x, y);
+		if (setMark.ordinal() > TileMark.QUESTION_MARK.ordinal())
+			throw new IllegalArgumentException("Invalid mark " + setMark);
+
+		Chunk chunk = getChunk(x, y);
+		int index = index(x, y);
+		int cell = chunk.cells[index];
+		if ((cell & TILE_REVEALED) != 0)
+			return;
+
+		if (MARKS[(cell & TILE_MARK_MASK) >> TILE_MARK_SHIFT] == TileMark.FLAG)
+			--mFlags;
+		if (setMark == TileMark.FLAG)
+			++mFlags;
+
+		chunk.cells[index] = (byte) ((cell & ~TILE_MARK_MASK) | (setMark.ordinal() << TILE_MARK_SHIFT));
+	}
+
+	// Cycles between NOTHING, FLAG and QUESTION_MARK
+	public void flagTile(int x, int y) {
+		switch (getTileMark(x, y)) {
+			case NOTHING:
+				flagTile(x, y, TileMark.FLAG);
+				break;
+			case FLAG:
+				flagTile(x, y, TileMark.QUESTION_MARK);
+				break;
+			case QUESTION_MARK:
+				flagTile(x, y, TileMark.NOTHING);
+				break;
+			default:
+				break;
+		}
+	}
+
+	// Tile.MINE is a mine. Only known for the revealed tiles, and for every tile once the game is over.
+	public int getTile(int x, int y) {
+		checkCoordinates(x, y);
+
+		Chunk chunk = findChunk(x, y);
+		int cell = chunk != null ? chunk.cells[index(x, y)] : 0;
+		if ((cell & TILE_REVEALED) != 0)
+			return (cell & TILE_MINE) != 0 ? Tile.MINE : cell & TILE_VALUE_MASK;
+
+		if (!isGameOver())
+			throw new IllegalStateException("The tile is not revealed");
+		return isMine(x, y) ? Tile.MINE : countMines(x, y);
+	}
+
+	public boolean isRevealed(int x, int y) {
+		checkCoordinates(x, y);
+
+		Chunk chunk = findChunk(x, y);
+		return chunk != null && (chunk.cells[index(x, y)] & TILE_REVEALED) != 0;
+	}
+
+	public TileMark getTileMark(int x, int y) {
+		checkCoordinates(x, y);
+
+		Chunk chunk = findChunk(x, y);
+		return chunk != null ? MARKS[(chunk.cells[index(x, y)] & TILE_MARK_MASK) >> TILE_MARK_SHIFT] : TileMark.NOTHING;
+	}
+
+	private static boolean isInside(int x, int y) {
+		return x >= MIN_COORDINATE && x <= MAX_COORDINATE && y >= MIN_COORDINATE && y <= MAX_COORDINATE;
+	}
+
+	private static void checkCoordinates(int x, int y) {
+		if (!isInside(x, y))
+			throw new IllegalArgumentException("Invalid coordinates " + x + ", " + y);
+	}
+
+	private static int index(int x, int y) {
+		return (y & CHUNK_MASK) << CHUNK_SHIFT | (x & CHUNK_MASK);
+	}
+
+	private static long chunkKey(int chunkX, int chunkY) {
+		return (long) chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+	}
+
+	// null when the chunk was never touched
+	private Chunk findChunk(int x, int y) {
+		int chunkX = x >> CHUNK_SHIFT;
+		int chunkY = y >> CHUNK_SHIFT;
+		if (mLastChunk != null && mLastChunk.x == chunkX && mLastChunk.y == chunkY)
+			return mLastChunk;
+
+		Chunk chunk = mChunks.get(chunkKey(chunkX, chunkY));
+		if (chunk != null)
+			mLastChunk = chunk;
+		return chunk;
+	}
+
+	// The chunk of the tile, its mines may not be placed yet
+	private Chunk getChunk(int x, int y) {
+		Chunk chunk = findChunk(x, y);
+		if (chunk == null) {
+			chunk = new Chunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+			mChunks.put(chunkKey(chunk.x, chunk.y), chunk);
+			mLastChunk = chunk;
+		}
+		return chunk;
+	}
+
+	// The chunk of the tile with its mines, only once the game started
+	private Chunk getMinedChunk(int x, int y) {
+		Chunk chunk = getChunk(x, y);
+		if (!chunk.minesPlaced)
+			placeMines(chunk);
+		return chunk;
+	}
+
+	// Floyd's sampling, as in MinesGame, of the mines among the tiles of the chunk but the first opened one.
+	// The generator only depends on the seed and the chunk coordinates.
+	private void placeMines(Chunk chunk) {
+		int first = CHUNK_TILES;
+		if (mFirstOpen.x >> CHUNK_SHIFT == chunk.x && mFirstOpen.y >> CHUNK_SHIFT == chunk.y)
+			first = index(mFirstOpen.x, mFirstOpen.y);
+		int candidates = first < CHUNK_TILES ? CHUNK_TILES - 1 : CHUNK_TILES;
+
+		SplittableRandom random = new SplittableRandom(mix(mSeed + mix(chunkKey(chunk.x, chunk.y))));
+		byte cells[] = chunk.cells;
+		for (int i = candidates - mMinesPerChunk; i < candidates; ++i) {
+			int candidate = random.nextInt(i + 1);
+			int index = candidate < first ? candidate : candidate + 1;
+			if ((cells[index] & TILE_MINE) != 0)
+				index = i < first ? i : i + 1;
+
+			cells[index] |= TILE_MINE;
+		}
+
+		chunk.minesPlaced = true;
+		++mMinedChunks;
+	}
+
+	// The 64 bit finalizer of MurmurHash3, close seeds would give SplittableRandom overlapping sequences
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+
+	private static class Chunk {
+		public final int x;
+		public final int y;
+		public final byte cells[] = new byte[CHUNK_TILES];
+		public boolean minesPlaced = false;
+
+		public Chunk(int _x, int _y) {
+			x = _x;
+			y = _y;
+		}
+	}
+}
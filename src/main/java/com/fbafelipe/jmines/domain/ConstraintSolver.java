@@ -0,0 +1,606 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+// Splits the frontier in independent components (hidden tiles linked by the revealed numbers around them) and
+// enumerates the mine configurations of each one with backtracking. Combining the components with the number of
+// remaining mines gives the exact mine probability of every hidden tile.
+class ConstraintSolver {
+	public static final byte UNKNOWN = 0;
+	public static final byte SAFE = 1;
+	public static final byte MINE = 2;
+
+	// Bigger components are not enumerated, their probabilities are only estimated
+	private static final int MAX_COMPONENT_TILES = 160;
+	private static final long MAX_SEARCH_NODES = 1 << 21;
+
+	// The search looks for an interruption every 4096 nodes
+	private static final long INTERRUPT_CHECK_MASK = (1 << 12) - 1;
+
+	private MinesGame mGame;
+
+	// Component results from the previous analysis, most components do not change between two steps
+	private Map<ComponentKey, ComponentResult> mCache = new HashMap<>();
+
+	public ConstraintSolver(MinesGame game) {
+		mGame = game;
+	}
+
+	// Returns null if the revealed numbers and the flags are not consistent with any placement of the mines.
+	// Throws CancellationException when the thread is interrupted during the search, nothing is cached then.
+	public Analysis analyze() {
+		final int width = mGame.getWidth();
+
+		// tile index -> variable, the hidden, unflagged neighbours of the frontier
+		final Map<Integer, Integer> variables = new HashMap<>();
+		final IntList variableTiles = new IntList();
+		final IntList constraintTiles = new IntList();
+		final IntList constraintMines = new IntList();
+		final List<int[]> constraintVariables = new ArrayList<>();
+		final IntList neighbours = new IntList(8);
+		final boolean inconsistent[] = {false};
+
+		mGame.visitFrontier((x, y) -> {
+			neighbours.clear();
+			int flags = 0;
+			for (int ny = Math.max(y - 1, 0); ny < Math.min(y + 2, mGame.getHeight()); ++ny) {
+				for (int nx = Math.max(x - 1, 0); nx < Math.min(x + 2, width); ++nx) {
+					if (mGame.isRevealed(nx, ny))
+						continue;
+
+					if (mGame.getTileMark(nx, ny) == TileMark.FLAG) {
+						++flags;
+						continue;
+					}
+
+					int tile = ny * width + nx;
+					Integer variable = variables.get(tile);
+					if (variable == null) {
+						variable = variableTiles.size();
+						variables.put(tile, variable);
+						variableTiles.add(tile);
+					}
+					neighbours.add(variable);
+				}
+			}
+
+			int mines = mGame.getTile(x, y) - flags;
+			if (mines < 0 || mines > neighbours.size())
+				inconsistent[0] = true;
+
+			constraintTiles.add(y * width + x);
+			constraintMines.add(mines);
+			constraintVariables.add(neighbours.toArray());
+		});
+
+		if (inconsistent[0])
+			return null;
+
+		List<Component> components = splitComponents(variableTiles, constraintTiles, constraintMines, constraintVariables);
+
+		Map<ComponentKey, ComponentResult> cache = new HashMap<>();
+		List<Component> exactComponents = new ArrayList<>();
+		int estimatedTiles = 0;
+		Analysis analysis = new Analysis(variableTiles.size());
+
+		for (Component component : components) {
+			ComponentKey key = new ComponentKey(component);
+			ComponentResult result = mCache.get(key);
+			if (result == null)
+				result = enumerate(component);
+
+			if (result == null) {
+				estimate(component, analysis);
+				estimatedTiles += component.tiles.length;
+				continue;
+			}
+
+			if (result.mineCounts.length == 0)
+				return null;
+
+			cache.put(key, result);
+			component.result = result;
+			exactComponents.add(component);
+		}
+
+		mCache = cache;
+
+		int hiddenTiles = mGame.getWidth() * mGame.getHeight() - mGame.getRevealedTiles() - mGame.getFlags();
+		int unconstrainedTiles = hiddenTiles - variableTiles.size();
+
+		// the mines of the estimated components are still in the remaining mines, their tiles go with the
+		// unconstrained ones, otherwise the exact components would have to hold mines that may be elsewhere
+		if (!combine(exactComponents, unconstrainedTiles + estimatedTiles, mGame.getRemainingMines(), analysis))
+			return null;
+
+		analysis.unconstrainedTiles = unconstrainedTiles;
+		return analysis;
+	}
+
+	private List<Component> splitComponents(IntList variableTiles, IntList constraintTiles, IntList constraintMines, List<int[]> constraintVariables) {
+		int parent[] = new int[variableTiles.size()];
+		for (int i = 0; i < parent.length; ++i)
+			parent[i] = i;
+
+		for (int[] constraint : constraintVariables) {
+			for (int i = 1; i < constraint.length; ++i) {
+				int a = find(parent, constraint[0]);
+				int b = find(parent, constraint[i]);
+				if (a != b)
+					parent[a] = b;
+			}
+		}
+
+		Map<Integer, Component> byRoot = new HashMap<>();
+		List<Component> components = new ArrayList<>();
+		for (int variable = 0; variable < parent.length; ++variable) {
+			int root = find(parent, variable);
+			Component component = byRoot.get(root);
+			if (component == null) {
+				component = new Component();
+				byRoot.put(root, component);
+				components.add(component);
+			}
+			component.variables.add(variable);
+		}
+
+		for (int c = 0; c < constraintVariables.size(); ++c) {
+			int constraint[] = constraintVariables.get(c);
+			if (constraint.length > 0)
+				byRoot.get(find(parent, constraint[0])).constraints.add(c);
+		}
+
+		for (Component component : components)
+			component.build(variableTiles, constraintTiles, constraintMines, constraintVariables);
+
+		return components;
+	}
+
+	private static int find(int parent[], int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	// Returns null when the component is too big to be enumerated
+	private ComponentResult enumerate(Component component) {
+		if (component.tiles.length > MAX_COMPONENT_TILES)
+			return null;
+
+		Search search = new Search(component);
+		search.run(0, 0);
+
+		if (search.aborted)
+			return null;
+
+		return search.toResult();
+	}
+
+	// A rough probability for the tiles of a component that was not enumerated, it is never certain
+	private void estimate(Component component, Analysis analysis) {
+		for (int i = 0; i < component.tiles.length; ++i) {
+			double probability = 0.0;
+			for (int c : component.tileConstraints[i])
+				probability = Math.max(probability, (double) component.constraintMines[c] / component.constraintTiles[c].length);
+
+			analysis.add(component.tiles[i], probability, UNKNOWN);
+		}
+	}
+
+	// Weights the mine counts of each component by the number of ways to place the rest of the mines in the
+	// tiles outside of the frontier. Returns false if no mine count is possible.
+	private boolean combine(List<Component> components, int unconstrainedTiles, int remainingMines, Analysis analysis) {
+		int maxMines = 0;
+		for (Component component : components)
+			maxMines += component.result.minMines + component.result.mineCounts.length - 1;
+
+		// log of C(unconstrainedTiles, remainingMines - t), the ways to place the remaining mines outside of the frontier
+		double weights[] = new double[maxMines + 1];
+		double logWeights[] = new double[maxMines + 1];
+		Arrays.fill(logWeights, Double.NEGATIVE_INFINITY);
+		double logBinomial = 0.0;
+		double maxLogWeight = Double.NEGATIVE_INFINITY;
+		for (int r = 0; r <= Math.min(remainingMines, unconstrainedTiles); ++r) {
+			if (r > 0)
+				logBinomial += Math.log((double) (unconstrainedTiles - r + 1) / r);
+
+			int t = remainingMines - r;
+			if (t <= maxMines) {
+				logWeights[t] = logBinomial;
+				maxLogWeight = Math.max(maxLogWeight, logBinomial);
+			}
+		}
+
+		if (maxLogWeight == Double.NEGATIVE_INFINITY)
+			return false;
+
+		for (int t = 0; t <= maxMines; ++t)
+			weights[t] = Math.exp(logWeights[t] - maxLogWeight);
+
+		// prefix[i] is the distribution of the mines in the components before i,
+		// suffix[i](s) sums the weights of the placements of the components from i on, given s mines before them
+		int count = components.size();
+		double prefix[][] = new double[count + 1][];
+		prefix[0] = new double[maxMines + 1];
+		prefix[0][0] = 1.0;
+		for (int i = 0; i < count; ++i)
+			prefix[i + 1] = normalize(convolve(prefix[i], components.get(i).result));
+
+		double suffix[][] = new double[count + 1][];
+		suffix[count] = weights;
+		for (int i = count - 1; i >= 0; --i) {
+			ComponentResult result = components.get(i).result;
+			double values[] = new double[maxMines + 1];
+			for (int s = 0; s <= maxMines; ++s) {
+				double sum = 0.0;
+				for (int k = 0; k < result.mineCounts.length && s + result.minMines + k <= maxMines; ++k)
+					sum += result.mineCounts[k] * suffix[i + 1][s + result.minMines + k];
+				values[s] = sum;
+			}
+			suffix[i] = normalize(values);
+		}
+
+		double total = 0.0;
+		double expectedUnconstrainedMines = 0.0;
+		for (int t = 0; t <= maxMines; ++t) {
+			double weight = prefix[count][t] * weights[t];
+			total += weight;
+			expectedUnconstrainedMines += weight * (remainingMines - t);
+		}
+
+		if (total <= 0.0)
+			return false;
+
+		analysis.unconstrainedProbability = unconstrainedTiles > 0 ? expectedUnconstrainedMines / total / unconstrainedTiles : 0.0;
+
+		for (int i = 0; i < count; ++i) {
+			Component component = components.get(i);
+			ComponentResult result = component.result;
+
+			// weight of each mine count of this component, given all the other components
+			double mineCountWeights[] = new double[result.mineCounts.length];
+			double componentTotal = 0.0;
+			for (int k = 0; k < result.mineCounts.length; ++k) {
+				int mines = result.minMines + k;
+				double sum = 0.0;
+				for (int p = 0; p + mines <= maxMines; ++p)
+					sum += prefix[i][p] * suffix[i + 1][p + mines];
+				mineCountWeights[k] = sum;
+				componentTotal += sum * result.mineCounts[k];
+			}
+
+			for (int tile = 0; tile < component.tiles.length; ++tile) {
+				double mineWeight = 0.0;
+				boolean safe = true;
+				boolean mine = true;
+				for (int k = 0; k < result.mineCounts.length; ++k) {
+					if (mineCountWeights[k] <= 0.0 || result.mineCounts[k] <= 0.0)
+						continue;
+
+					double tileMineCount = result.tileMineCounts[tile * result.mineCounts.length + k];
+					mineWeight += tileMineCount * mineCountWeights[k];
+					if (tileMineCount != 0.0)
+						safe = false;
+					if (tileMineCount != result.mineCounts[k])
+						mine = false;
+				}
+
+				byte certainty = safe ? SAFE : (mine ? MINE : UNKNOWN);
+				double probability = safe ? 0.0 : (mine ? 1.0 : mineWeight / componentTotal);
+				analysis.add(component.tiles[tile], probability, certainty);
+			}
+		}
+
+		return true;
+	}
+
+	private static double[] convolve(double distribution[], ComponentResult result) {
+		double values[] = new double[distribution.length];
+		for (int t = 0; t < distribution.length; ++t) {
+			if (distribution[t] == 0.0)
+				continue;
+
+			for (int k = 0; k < result.mineCounts.length && t + result.minMines + k < values.length; ++k)
+				values[t + result.minMines + k] += distribution[t] * result.mineCounts[k];
+		}
+		return values;
+	}
+
+	// Scaling a whole distribution does not change the probabilities, it keeps the products of many components
+	// from overflowing
+	private static double[] normalize(double values[]) {
+		double max = 0.0;
+		for (double value : values)
+			max = Math.max(max, value);
+
+		if (max > 0.0) {
+			for (int i = 0; i < values.length; ++i)
+				values[i] /= max;
+		}
+		return values;
+	}
+
+	public static class Analysis {
+		// tile indexes (y * width + x) of the hidden tiles next to the frontier
+		private IntList mTiles;
+		private double mProbabilities[];
+		private byte mCertainties[];
+
+		// hidden, unflagged tiles that are not next to the frontier, they all have the same probability
+		public int unconstrainedTiles;
+		public double unconstrainedProbability;
+
+		private Analysis(int capacity) {
+			mTiles = new IntList(capacity);
+			mProbabilities = new double[capacity];
+			mCertainties = new byte[capacity];
+		}
+
+		private void add(int tile, double probability, byte certainty) {
+			mProbabilities[mTiles.size()] = probability;
+			mCertainties[mTiles.size()] = certainty;
+			mTiles.add(tile);
+		}
+
+		public int size() {
+			return mTiles.size();
+		}
+
+		public int getTile(int i) {
+			return mTiles.get(i);
+		}
+
+		public double getProbability(int i) {
+			return mProbabilities[i];
+		}
+
+		public byte getCertainty(int i) {
+			return mCertainties[i];
+		}
+	}
+
+	private static class Component {
+		public IntList variables = new IntList();
+		public IntList constraints = new IntList();
+
+		// Local numbering, tiles are sorted by index so the same component always has the same key
+		public int tiles[];
+		public int constraintCells[];
+		public int constraintMines[];
+		public int constraintTiles[][];
+		public int tileConstraints[][];
+
+		public ComponentResult result;
+
+		public void build(IntList variableTiles, IntList allConstraintTiles, IntList allConstraintMines, List<int[]> allConstraintVariables) {
+			int order[] = variables.toArray();
+			Integer sorted[] = new Integer[order.length];
+			for (int i = 0; i < order.length; ++i)
+				sorted[i] = order[i];
+			Arrays.sort(sorted, (a, b) -> Integer.compare(variableTiles.get(a), variableTiles.get(b)));
+
+			Map<Integer, Integer> local = new HashMap<>();
+			tiles = new int[sorted.length];
+			for (int i = 0; i < sorted.length; ++i) {
+				local.put(sorted[i], i);
+				tiles[i] = variableTiles.get(sorted[i]);
+			}
+
+			constraintCells = new int[constraints.size()];
+			constraintMines = new int[constraints.size()];
+			constraintTiles = new int[constraints.size()][];
+			IntList[] byTile = new IntList[tiles.length];
+			for (int i = 0; i < tiles.length; ++i)
+				byTile[i] = new IntList(8);
+
+			for (int c = 0; c < constraints.size(); ++c) {
+				int constraint = constraints.get(c);
+				constraintCells[c] = allConstraintTiles.get(constraint);
+				constraintMines[c] = allConstraintMines.get(constraint);
+
+				int constraintVariables[] = allConstraintVariables.get(constraint);
+				constraintTiles[c] = new int[constraintVariables.length];
+				for (int i = 0; i < constraintVariables.length; ++i) {
+					int tile = local.get(constraintVariables[i]);
+					constraintTiles[c][i] = tile;
+					byTile[tile].add(c);
+				}
+			}
+
+			tileConstraints = new int[tiles.length][];
+			for (int i = 0; i < tiles.length; ++i)
+				tileConstraints[i] = byTile[i].toArray();
+		}
+	}
+
+	private static class ComponentKey {
+		private final int mValues[];
+		private final int mHash;
+
+		public ComponentKey(Component component) {
+			int length = component.tiles.length + component.constraintCells.length * 2;
+			mValues = new int[length + 1];
+			mValues[0] = component.tiles.length;
+			System.arraycopy(component.tiles, 0, mValues, 1, component.tiles.length);
+
+			// constraints are visited in frontier order, sort them by tile
+			long constraints[] = new long[component.constraintCells.length];
+			for (int c = 0; c < constraints.length; ++c)
+				constraints[c] = ((long) component.constraintCells[c] << 32) | component.constraintMines[c];
+			Arrays.sort(constraints);
+
+			for (int c = 0; c < constraints.length; ++c) {
+				mValues[component.tiles.length + 1 + c * 2] = (int) (constraints[c] >>> 32);
+				mValues[component.tiles.length + 2 + c * 2] = (int) constraints[c];
+			}
+
+			mHash = Arrays.hashCode(mValues);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof ComponentKey && Arrays.equals(mValues, ((ComponentKey) o).mValues);
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+	}
+
+	private static class ComponentResult {
+		public int minMines;
+
+		// number of configurations with minMines + k mines, scaled
+		public double mineCounts[];
+
+		// [tile * mineCounts.length + k] number of those configurations where the tile is a mine
+		public double tileMineCounts[];
+	}
+
+	private static class Search {
+		private final Component mComponent;
+		private final int mOrder[];
+
+		private final int mConstraintAssignedMines[];
+		private final int mConstraintUnassigned[];
+		private final boolean mMine[];
+
+		private final double mMineCounts[];
+		private final double mTileMineCounts[];
+
+		private long mNodes = 0;
+		public boolean aborted = false;
+
+		public Search(Component component) {
+			mComponent = component;
+			mOrder = searchOrder(component);
+
+			mConstraintAssignedMines = new int[component.constraintMines.length];
+			mConstraintUnassigned = new int[component.constraintMines.length];
+			for (int c = 0; c < mConstraintUnassigned.length; ++c)
+				mConstraintUnassigned[c] = component.constraintTiles[c].length;
+
+			mMine = new boolean[component.tiles.length];
+			mMineCounts = new double[component.tiles.length + 1];
+			mTileMineCounts = new double[component.tiles.length * (component.tiles.length + 1)];
+		}
+
+		// Neighbouring tiles are assigned one after the other so the constraints are checked as early as possible
+		private static int[] searchOrder(Component component) {
+			int order[] = new int[component.tiles.length];
+			boolean visited[] = new boolean[component.tiles.length];
+			int size = 0;
+			for (int start = 0; start < order.length; ++start) {
+				if (visited[start])
+					continue;
+
+				visited[start] = true;
+				order[size++] = start;
+				for (int i = size - 1; i < size; ++i) {
+					for (int c : component.tileConstraints[order[i]]) {
+						for (int tile : component.constraintTiles[c]) {
+							if (!visited[tile]) {
+								visited[tile] = true;
+								order[size++] = tile;
+							}
+						}
+					}
+				}
+			}
+			return order;
+		}
+
+		public void run(int position, int mines) {
+			if (aborted)
+				return;
+
+			if (++mNodes > MAX_SEARCH_NODES) {
+				aborted = true;
+				return;
+			}
+
+			// the flag is not cleared, the caller sees it too
+			if ((mNodes & INTERRUPT_CHECK_MASK) == 0 && Thread.currentThread().isInterrupted())
+				throw new CancellationException();
+
+			if (position == mOrder.length) {
+				mMineCounts[mines] += 1.0;
+				for (int tile = 0; tile < mMine.length; ++tile) {
+					if (mMine[tile])
+						mTileMineCounts[tile * mMineCounts.length + mines] += 1.0;
+				}
+				return;
+			}
+
+			int tile = mOrder[position];
+			int constraints[] = mComponent.tileConstraints[tile];
+
+			boolean canBeSafe = true;
+			boolean canBeMine = true;
+			for (int c : constraints) {
+				int needed = mComponent.constraintMines[c] - mConstraintAssignedMines[c];
+				if (needed <= 0)
+					canBeMine = false;
+				if (needed >= mConstraintUnassigned[c])
+					canBeSafe = false;
+			}
+
+			for (int c : constraints)
+				--mConstraintUnassigned[c];
+
+			if (canBeSafe)
+				run(position + 1, mines);
+
+			if (canBeMine) {
+				mMine[tile] = true;
+				for (int c : constraints)
+					++mConstraintAssignedMines[c];
+
+				run(position + 1, mines + 1);
+
+				for (int c : constraints)
+					--mConstraintAssignedMines[c];
+				mMine[tile] = false;
+			}
+
+			for (int c : constraints)
+				++mConstraintUnassigned[c];
+		}
+
+		public ComponentResult toResult() {
+			ComponentResult result = new ComponentResult();
+
+			int min = 0;
+			while (min < mMineCounts.length && mMineCounts[min] == 0.0)
+				++min;
+			int max = mMineCounts.length - 1;
+			while (max >= min && mMineCounts[max] == 0.0)
+				--max;
+
+			int counts = Math.max(max - min + 1, 0);
+			result.minMines = counts == 0 ? 0 : min;
+			result.mineCounts = new double[counts];
+			result.tileMineCounts = new double[mComponent.tiles.length * counts];
+
+			double scale = 0.0;
+			for (int k = 0; k < counts; ++k)
+				scale = Math.max(scale, mMineCounts[min + k]);
+
+			for (int k = 0; k < counts; ++k) {
+				result.mineCounts[k] = mMineCounts[min + k] / scale;
+				for (int tile = 0; tile < mComponent.tiles.length; ++tile)
+					result.tileMineCounts[tile * counts + k] = mTileMineCounts[tile * mMineCounts.length + min + k] / scale;
+			}
+
+			return result;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.fbafelipe.jmines.domain;
+
+// Tiles that are safe or mines in every placement of the mines consistent with the frontier
+public class ConstraintStrategy implements SolverStrategy {
+	private MinesGame mGame;
+
+	private ConstraintSolver mConstraintSolver;
+	private ConstraintSolver.Analysis mAnalysis;
+	private boolean mAnalysisValid = false;
+
+	public ConstraintStrategy(MinesGame game) {
+		mGame = game;
+		mConstraintSolver = new ConstraintSolver(game);
+	}
+
+	@Override
+	public String getName() {
+		return "constraints";
+	}
+
+	@Override
+	public void onTileChanged(int x, int y) {
+		mAnalysisValid = false;
+	}
+
+	// Kept until the game changes, returns null if the frontier is not consistent
+	ConstraintSolver.Analysis getAnalysis() {
+		if (!mAnalysisValid) {
+			mAnalysis = mConstraintSolver.analyze();
+			mAnalysisValid = true;
+		}
+
+		return mAnalysis;
+	}
+
+	@Override
+	public void solve(StepSink sink) {
+		ConstraintSolver.Analysis analysis = getAnalysis();
+		if (analysis == null)
+			return;
+
+		for (int i = 0; i < analysis.size(); ++i) {
+			if (analysis.getCertainty(i) == ConstraintSolver.SAFE && !sink.accept(createStep(analysis.getTile(i), Solver.StepType.OPEN)))
+				return;
+		}
+
+		for (int i = 0; i < analysis.size(); ++i) {
+			if (analysis.getCertainty(i) == ConstraintSolver.MINE && !sink.accept(createStep(analysis.getTile(i), Solver.StepType.FLAG)))
+				return;
+		}
+	}
+
+	private Solver.Step createStep(int index, Solver.StepType stepType) {
+		return new Solver.Step(index % mGame.getWidth(), index / mGame.getWidth(), stepType);
+	}
+}
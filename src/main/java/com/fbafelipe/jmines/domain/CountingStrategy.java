@@ -0,0 +1,42 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.List;
+
+// A revealed number with all its mines flagged, or with as many hidden tiles as missing mines
+public class CountingStrategy extends TileQueueStrategy {
+	private final SolverContext mContext = new SolverContext();
+
+	public CountingStrategy(MinesGame game) {
+		super(game, 1);
+	}
+
+	@Override
+	public String getName() {
+		return "counting";
+	}
+
+	@Override
+	protected void solveTile(int x, int y, List<Solver.Step> steps) {
+		if (!mGame.isRevealed(x, y) || mGame.getTile(x, y) == 0)
+			return;
+
+		countFlagsAndCandidates(x, y, mContext);
+
+		if (mContext.firstCandidate == null)
+			return;
+
+		Solver.StepType stepType;
+		if (mContext.flags == mGame.getTile(x, y))
+			stepType = Solver.StepType.OPEN;
+		else if (mContext.flags + mContext.candidateTiles == mGame.getTile(x, y))
+			stepType = Solver.StepType.FLAG;
+		else
+			return;
+
+		// every hidden, unflagged neighbour
+		mGame.visitNeighbours(x, y, (nx, ny) -> {
+			if (!mGame.isRevealed(nx, ny) && mGame.getTileMark(nx, ny) != TileMark.FLAG)
+				steps.add(new Solver.Step(nx, ny, stepType));
+		});
+	}
+}
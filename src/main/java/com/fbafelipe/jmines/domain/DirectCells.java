@@ -0,0 +1,82 @@
+package com.fbafelipe.jmines.domain;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Larger pages than HeapCells, there is a native allocation and a Cleaner for each one
+class DirectCells extends Cells {
+	private static final int PAGE_SHIFT = 20;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private static final byte ZEROS[] = new byte[1 << 16];
+
+	private final int mSize;
+	private final ByteBuffer mPages[];
+	private final boolean mPageOwned[];
+
+	public DirectCells(int size) {
+		mSize = size;
+		mPages = new ByteBuffer[(size + PAGE_MASK) >>> PAGE_SHIFT];
+		mPageOwned = new boolean[mPages.length];
+		for (int i = 0; i < mPages.length; ++i) {
+			mPages[i] = ByteBuffer.allocateDirect(Math.min(PAGE_SIZE, size - (i << PAGE_SHIFT)));
+			mPageOwned[i] = true;
+		}
+	}
+
+	private DirectCells(DirectCells other) {
+		mSize = other.mSize;
+		mPages = other.mPages.clone();
+		mPageOwned = new boolean[mPages.length];
+		Arrays.fill(other.mPageOwned, false);
+	}
+
+	@Override
+	public BoardStorage getStorage() {
+		return BoardStorage.OFF_HEAP;
+	}
+
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	@Override
+	public int get(int index) {
+		return mPages[index >>> PAGE_SHIFT].get(index & PAGE_MASK);
+	}
+
+	@Override
+	public void set(int index, int cell) {
+		int page = index >>> PAGE_SHIFT;
+		if (!mPageOwned[page]) {
+			ByteBuffer copy = ByteBuffer.allocateDirect(mPages[page].capacity());
+			copy.put(0, mPages[page], 0, copy.capacity());
+			mPages[page] = copy;
+			mPageOwned[page] = true;
+		}
+
+		mPages[page].put(index & PAGE_MASK, (byte) cell);
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < mPages.length; ++i) {
+			if (mPageOwned[i]) {
+				ByteBuffer page = mPages[i];
+				for (int offset = 0; offset < page.capacity(); offset += ZEROS.length)
+					page.put(offset, ZEROS, 0, Math.min(ZEROS.length, page.capacity() - offset));
+			}
+			else {
+				mPages[i] = ByteBuffer.allocateDirect(mPages[i].capacity());
+				mPageOwned[i] = true;
+			}
+		}
+	}
+
+	@Override
+	public Cells share() {
+		return new DirectCells(this);
+	}
+}
@@ -0,0 +1,101 @@
+package com.fbafelipe.jmines.domain;
+
+// Opens the tile less likely to be a mine according to the constraint analysis, or the first hidden tile when
+// there is no analysis
+public class GuessStrategy implements SolverStrategy {
+	private MinesGame mGame;
+	private ConstraintStrategy mConstraints;
+
+	// Every tile before it is revealed or flagged
+	private int mGuessIndex = 0;
+
+	public GuessStrategy(MinesGame game, ConstraintStrategy constraints) {
+		mGame = game;
+		mConstraints = constraints;
+	}
+
+	@Override
+	public String getName() {
+		return "guess";
+	}
+
+	@Override
+	public boolean isGuess() {
+		return true;
+	}
+
+	@Override
+	public void onTileChanged(int x, int y) {
+		int index = y * mGame.getWidth() + x;
+		if (index < mGuessIndex && isHiddenAndUnflagged(index))
+			mGuessIndex = index;
+	}
+
+	@Override
+	public void solve(StepSink sink) {
+		Solver.Step step = guess();
+		if (step != null)
+			sink.accept(step);
+	}
+
+	private Solver.Step guess() {
+		ConstraintSolver.Analysis analysis = mConstraints != null ? mConstraints.getAnalysis() : null;
+		if (analysis == null)
+			return firstHiddenTile(false);
+
+		int best = -1;
+		for (int i = 0; i < analysis.size(); ++i) {
+			if (best < 0 || analysis.getProbability(i) < analysis.getProbability(best))
+				best = i;
+		}
+
+		if (best >= 0 && (analysis.unconstrainedTiles == 0 || analysis.getProbability(best) <= analysis.unconstrainedProbability))
+			return createStep(analysis.getTile(best));
+
+		Solver.Step step = firstHiddenTile(true);
+		return step != null ? step : firstHiddenTile(false);
+	}
+
+	// The first hidden, unflagged tile in scan order, optionally one with no revealed neighbour
+	private Solver.Step firstHiddenTile(boolean unconstrained) {
+		int tiles = mGame.getWidth() * mGame.getHeight();
+		for (; mGuessIndex < tiles; ++mGuessIndex) {
+			if (!isHiddenAndUnflagged(mGuessIndex))
+				continue;
+
+			int index = mGuessIndex;
+			if (!unconstrained)
+				return createStep(index);
+
+			for (; index < tiles; ++index) {
+				if (isHiddenAndUnflagged(index) && !hasRevealedNeighbour(index))
+					return createStep(index);
+			}
+			return null;
+		}
+
+		return null;
+	}
+
+	private boolean isHiddenAndUnflagged(int index) {
+		int x = index % mGame.getWidth();
+		int y = index / mGame.getWidth();
+		return !mGame.isRevealed(x, y) && mGame.getTileMark(x, y) != TileMark.FLAG;
+	}
+
+	private boolean hasRevealedNeighbour(int index) {
+		int x = index % mGame.getWidth();
+		int y = index / mGame.getWidth();
+		for (int ny = Math.max(y - 1, 0); ny < Math.min(y + 2, mGame.getHeight()); ++ny) {
+			for (int nx = Math.max(x - 1, 0); nx < Math.min(x + 2, mGame.getWidth()); ++nx) {
+				if (mGame.isRevealed(nx, ny))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private Solver.Step createStep(int index) {
+		return new Solver.Step(index % mGame.getWidth(), index / mGame.getWidth(), Solver.StepType.OPEN);
+	}
+}
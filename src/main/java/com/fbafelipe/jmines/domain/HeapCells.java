@@ -0,0 +1,73 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.Arrays;
+
+class HeapCells extends Cells {
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private final int mSize;
+	private final byte mPages[][];
+	private final boolean mPageOwned[];
+
+	public HeapCells(int size) {
+		mSize = size;
+		mPages = new byte[(size + PAGE_MASK) >>> PAGE_SHIFT][];
+		mPageOwned = new boolean[mPages.length];
+		for (int i = 0; i < mPages.length; ++i) {
+			mPages[i] = new byte[Math.min(PAGE_SIZE, size - (i << PAGE_SHIFT))];
+			mPageOwned[i] = true;
+		}
+	}
+
+	private HeapCells(HeapCells other) {
+		mSize = other.mSize;
+		mPages = other.mPages.clone();
+		mPageOwned = new boolean[mPages.length];
+		Arrays.fill(other.mPageOwned, false);
+	}
+
+	@Override
+	public BoardStorage getStorage() {
+		return BoardStorage.HEAP;
+	}
+
+	@Override
+	public int size() {
+		return mSize;
+	}
+
+	@Override
+	public int get(int index) {
+		return mPages[index >>> PAGE_SHIFT][index & PAGE_MASK];
+	}
+
+	@Override
+	public void set(int index, int cell) {
+		int page = index >>> PAGE_SHIFT;
+		if (!mPageOwned[page]) {
+			mPages[page] = mPages[page].clone();
+			mPageOwned[page] = true;
+		}
+
+		mPages[page][index & PAGE_MASK] = (byte) cell;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < mPages.length; ++i) {
+			if (mPageOwned[i])
+				Arrays.fill(mPages[i], (byte) 0);
+			else {
+				mPages[i] = new byte[mPages[i].length];
+				mPageOwned[i] = true;
+			}
+		}
+	}
+
+	@Override
+	public Cells share() {
+		return new HeapCells(this);
+	}
+}
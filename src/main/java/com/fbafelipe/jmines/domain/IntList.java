@@ -0,0 +1,56 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.Arrays;
+
+public class IntList {
+	private int mValues[];
+	private int mSize = 0;
+
+	public IntList() {
+		this(16);
+	}
+
+	public IntList(int capacity) {
+		mValues = new int[Math.max(capacity, 1)];
+	}
+
+	public IntList(IntList other) {
+		mValues = Arrays.copyOf(other.mValues, Math.max(other.mSize, 1));
+		mSize = other.mSize;
+	}
+
+	public void add(int value) {
+		if (mSize == mValues.length)
+			mValues = Arrays.copyOf(mValues, mValues.length * 2);
+
+		mValues[mSize++] = value;
+	}
+
+	public int get(int index) {
+		return mValues[index];
+	}
+
+	public void set(int index, int value) {
+		mValues[index] = value;
+	}
+
+	public void removeLast(int count) {
+		mSize -= count;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	public void clear() {
+		mSize = 0;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(mValues, mSize);
+	}
+}
@@ -0,0 +1,161 @@
+package com.fbafelipe.jmines.domain;
+
+// The changes made by each move of a MinesGame, so the moves can be undone and redone without copying the board.
+// Only the changed cells are kept, as (index, old cell << 8 | new cell) pairs, with the game counters before and
+// after each move. A cell changed more than once by a move has one pair for each change.
+class Journal {
+	// The game counters, as saved by MinesGame
+	public static final int STATE_SIZE = 4;
+
+	// first change, end of the changes, the state before and the state after
+	private static final int MOVE_SIZE = 2 + 2 * STATE_SIZE;
+
+	private final IntList mChanges = new IntList();
+	private final IntList mMoves = new IntList();
+
+	// The moves made, the ones after it were undone and can be redone
+	private int mPosition = 0;
+
+	private boolean mRecording = false;
+
+	// Set while recording a move started by beginMove, it is kept after the undone moves until endMove
+	private boolean mNewMove = false;
+
+	public void beginMove(int state[]) {
+		int changes = mChanges.size() / 2;
+		mMoves.add(changes);
+		mMoves.add(changes);
+		for (int i = 0; i < STATE_SIZE; ++i)
+			mMoves.add(state[i]);
+		for (int i = 0; i < STATE_SIZE; ++i)
+			mMoves.add(state[i]);
+
+		mRecording = true;
+		mNewMove = true;
+	}
+
+	// Records the next changes as part of the last move, until endMove. Returns false, recording nothing, when
+	// the last move was undone or there is none.
+	public boolean continueLastMove() {
+		if (mPosition == 0 || mPosition != getMoveCount())
+			return false;
+
+		mRecording = true;
+		mNewMove = false;
+		return true;
+	}
+
+	public void record(int index, int oldCell, int newCell) {
+		if (!mRecording)
+			return;
+
+		mChanges.add(index);
+		mChanges.add((oldCell & 0xFF) << 8 | (newCell & 0xFF));
+	}
+
+	// Returns false when the move changed nothing, it is then forgotten and the undone moves can still be
+	// redone. Otherwise the undone moves are forgotten.
+	public boolean endMove(int state[]) {
+		int move = getMoveCount() - 1;
+		mMoves.set(move * MOVE_SIZE + 1, mChanges.size() / 2);
+		for (int i = 0; i < STATE_SIZE; ++i)
+			mMoves.set(move * MOVE_SIZE + 2 + STATE_SIZE + i, state[i]);
+		mRecording = false;
+
+		if (!mNewMove)
+			return true;
+
+		// nothing to undo
+		if (getChangeBegin(move) == getChangeEnd(move)) {
+			boolean stateChanged = false;
+			for (int i = 0; i < STATE_SIZE; ++i)
+				stateChanged |= getState(move, false, i) != getState(move, true, i);
+
+			if (!stateChanged) {
+				truncate(move);
+				return false;
+			}
+		}
+
+		// the move takes the place of the first undone one
+		if (move > mPosition) {
+			int begin = getChangeBegin(mPosition);
+			int moveBegin = getChangeBegin(move);
+			int changes = getChangeEnd(move) - moveBegin;
+			for (int i = 0; i < changes * 2; ++i)
+				mChanges.set(begin * 2 + i, mChanges.get(moveBegin * 2 + i));
+			for (int i = 0; i < MOVE_SIZE; ++i)
+				mMoves.set(mPosition * MOVE_SIZE + i, mMoves.get(move * MOVE_SIZE + i));
+			mMoves.set(mPosition * MOVE_SIZE, begin);
+			mMoves.set(mPosition * MOVE_SIZE + 1, begin + changes);
+
+			mChanges.removeLast(mChanges.size() - (begin + changes) * 2);
+			mMoves.removeLast(mMoves.size() - (mPosition + 1) * MOVE_SIZE);
+		}
+
+		++mPosition;
+		return true;
+	}
+
+	public int getPosition() {
+		return mPosition;
+	}
+
+	public int getMoveCount() {
+		return mMoves.size() / MOVE_SIZE;
+	}
+
+	public boolean canUndo() {
+		return mPosition > 0;
+	}
+
+	public boolean canRedo() {
+		return mPosition < getMoveCount();
+	}
+
+	// Returns the move to undo
+	public int undoMove() {
+		return --mPosition;
+	}
+
+	// Returns the move to redo
+	public int redoMove() {
+		return mPosition++;
+	}
+
+	// Forgets the moves after position
+	public void truncate(int position) {
+		int changes = position < getMoveCount() ? getChangeBegin(position) : mChanges.size() / 2;
+		mChanges.removeLast(mChanges.size() - changes * 2);
+		mMoves.removeLast(mMoves.size() - position * MOVE_SIZE);
+		mPosition = Math.min(mPosition, position);
+	}
+
+	public void clear() {
+		truncate(0);
+	}
+
+	public int getChangeBegin(int move) {
+		return mMoves.get(move * MOVE_SIZE);
+	}
+
+	public int getChangeEnd(int move) {
+		return mMoves.get(move * MOVE_SIZE + 1);
+	}
+
+	public int getState(int move, boolean after, int i) {
+		return mMoves.get(move * MOVE_SIZE + 2 + (after ? STATE_SIZE : 0) + i);
+	}
+
+	public int getChangeIndex(int change) {
+		return mChanges.get(change * 2);
+	}
+
+	public int getOldCell(int change) {
+		return mChanges.get(change * 2 + 1) >>> 8;
+	}
+
+	public int getNewCell(int change) {
+		return mChanges.get(change * 2 + 1) & 0xFF;
+	}
+}
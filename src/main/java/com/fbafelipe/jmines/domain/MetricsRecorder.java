@@ -0,0 +1,15 @@
+package com.fbafelipe.jmines.domain;
+
+// Receives the measurements of a Solver and of a MinesGame, see their setMetricsRecorder. Nothing is measured
+// while no recorder is set. A recorder shared by solvers or games used on different threads must be thread safe.
+public interface MetricsRecorder {
+	// A strategy was asked for steps and found the given number of them. neighbourVisits and cellsScanned are
+	// the MinesGame counters (see getNeighbourVisits and getCellsScanned) increased during the pass.
+	void onSolverPass(String strategy, long nanos, int steps, long neighbourVisits, long cellsScanned);
+
+	// Solver.guess returned a step of the strategy
+	void onGuess(String strategy);
+
+	// The safe tiles revealed by one openTile or openNeighbours, only called when there are any
+	void onCascade(int tiles);
+}
@@ -0,0 +1,126 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.List;
+
+// Compares the hidden neighbours of a revealed number with the mine groups (hidden neighbours and missing mines)
+// of the revealed numbers next to it.
+// The 5x5 window around the tile is stored in bitmasks, bit (dx + 2) * 5 + (dy + 2) is the tile at (x + dx, y + dy),
+// so the mine group of any neighbour is a single AND and comparing groups is a popcount.
+public class MineGroupStrategy extends TileQueueStrategy {
+	private static final int WINDOW_SIZE = 5;
+	private static final int CENTER = 2 * WINDOW_SIZE + 2;
+
+	// The 3x3 neighbourhood of each position of the window, without the position itself
+	private static final int NEIGHBOURS_MASKS[] = createNeighboursMasks();
+
+	public MineGroupStrategy(MinesGame game) {
+		// the mine groups of the neighbours depend on their own neighbours
+		super(game, 2);
+	}
+
+	private static int[] createNeighboursMasks() {
+		int masks[] = new int[WINDOW_SIZE * WINDOW_SIZE];
+		for (int x = 0; x < WINDOW_SIZE; ++x) {
+			for (int y = 0; y < WINDOW_SIZE; ++y) {
+				int mask = 0;
+				for (int nx = Math.max(x - 1, 0); nx < Math.min(x + 2, WINDOW_SIZE); ++nx) {
+					for (int ny = Math.max(y - 1, 0); ny < Math.min(y + 2, WINDOW_SIZE); ++ny) {
+						if (nx != x || ny != y)
+							mask |= 1 << bit(nx, ny);
+					}
+				}
+				masks[bit(x, y)] = mask;
+			}
+		}
+		return masks;
+	}
+
+	private static int bit(int windowX, int windowY) {
+		return windowX * WINDOW_SIZE + windowY;
+	}
+
+	@Override
+	public String getName() {
+		return "mine groups";
+	}
+
+	@Override
+	protected void solveTile(int x, int y, List<Solver.Step> steps) {
+		int value = mGame.getTile(x, y);
+		if (!mGame.isRevealed(x, y) || value <= 0)
+			return;
+
+		// hidden, unflagged tiles and flags of the window
+		int candidates = 0;
+		int flags = 0;
+		for (int dx = -2; dx <= 2; ++dx) {
+			int wx = x + dx;
+			if (wx < 0 || wx >= mGame.getWidth())
+				continue;
+
+			for (int dy = -2; dy <= 2; ++dy) {
+				int wy = y + dy;
+				if (wy < 0 || wy >= mGame.getHeight() || mGame.isRevealed(wx, wy))
+					continue;
+
+				if (mGame.getTileMark(wx, wy) == TileMark.FLAG)
+					flags |= 1 << bit(dx + 2, dy + 2);
+				else
+					candidates |= 1 << bit(dx + 2, dy + 2);
+			}
+		}
+
+		int tiles = candidates & NEIGHBOURS_MASKS[CENTER];
+		if (tiles == 0)
+			return;
+
+		int missingMines = value - Integer.bitCount(flags & NEIGHBOURS_MASKS[CENTER]);
+
+		// what every neighbour group tells, not only the first one
+		int safeTiles = 0;
+		int mineTiles = 0;
+
+		for (int dx = -1; dx <= 1; ++dx) {
+			for (int dy = -1; dy <= 1; ++dy) {
+				int nx = x + dx;
+				int ny = y + dy;
+				if ((dx == 0 && dy == 0) || nx < 0 || ny < 0 || nx >= mGame.getWidth() || ny >= mGame.getHeight())
+					continue;
+
+				int groupValue = mGame.getTile(nx, ny);
+				if (!mGame.isRevealed(nx, ny) || groupValue <= 0)
+					continue;
+
+				int neighbours = NEIGHBOURS_MASKS[bit(dx + 2, dy + 2)];
+				int group = candidates & neighbours;
+				int groupMines = groupValue - Integer.bitCount(flags & neighbours);
+				if (group == 0 || groupMines <= 0)
+					continue;
+
+				int groupTilesIsNeighbour = Integer.bitCount(group & tiles);
+				int minMinesFromGroup = groupMines - Integer.bitCount(group & ~tiles);
+				if (minMinesFromGroup <= 0)
+					continue;
+
+				int notInGroup = tiles & ~group;
+				if (minMinesFromGroup == missingMines && notInGroup != 0)
+					safeTiles |= notInGroup;
+
+				int maxMinesFromGroup = Math.min(groupMines, groupTilesIsNeighbour);
+				if (notInGroup != 0 && minMinesFromGroup == maxMinesFromGroup && maxMinesFromGroup + Integer.bitCount(notInGroup) == missingMines)
+					mineTiles |= notInGroup;
+			}
+		}
+
+		addSteps(x, y, safeTiles, Solver.StepType.OPEN, steps);
+		addSteps(x, y, mineTiles, Solver.StepType.FLAG, steps);
+	}
+
+	// A step for each tile of the mask
+	private static void addSteps(int x, int y, int mask, Solver.StepType stepType, List<Solver.Step> steps) {
+		for (; mask != 0; mask &= mask - 1) {
+			int bit = Integer.numberOfTrailingZeros(mask);
+			steps.add(new Solver.Step(x + bit / WINDOW_SIZE - 2, y + bit % WINDOW_SIZE - 2, stepType));
+		}
+	}
+}
@@ -1,40 +1,188 @@
 package com.fbafelipe.jmines.domain;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 public class MinesGame {
+	// Each cell is packed in a single byte, the board is stored row-major:
+	// bits 0-3 are the number of neighbour mines (or CELL_MINE), bit 4 is set when the cell is revealed,
+	// bits 5-6 hold the TileMark ordinal and bit 7 is set while the cell is in the frontier list.
+	// The cells are shared with the snapshots, see Cells.
+
+	private static final int CELL_VALUE_MASK = 0x0F;
+	private static final int CELL_MINE = 0x0F;
+	private static final int CELL_REVEALED = 0x10;
+	private static final int CELL_MARK_SHIFT = 5;
+	private static final int CELL_MARK_MASK = 0x60;
+	private static final int CELL_FLAG = 1 << CELL_MARK_SHIFT;
+	private static final int CELL_FRONTIER = 0x80;
+
+	private static final TileMark MARKS[] = TileMark.values();
+	private static final GameState GAME_STATES[] = GameState.values();
+
+	private static final TileVisitor NO_VISITOR = (x, y) -> {};
+
 	private Difficulty mDifficulty;
 
-	private int mTiles[][];
-	private TileMark mMarks[][];
-	private boolean mRevealed[][];
+	private final BoardStorage mStorage;
+	private Cells mCells;
 	private GameState mGameState = GameState.IN_PROGRESS;
 
 	private Tile mBlowedMine = null;
 
 	private boolean mMinesPlaced = false;
 
+	private IntList mOpenStack = new IntList();
+
+	// (x, y) of the revealed numbers that may still have hidden, unflagged neighbours. Tiles that left the
+	// frontier are only removed when visiting it.
+	private IntList mFrontier = new IntList();
+
+	private TileVisitor mTileListeners[] = new TileVisitor[0];
+	private MoveListener mMoveListeners[] = new MoveListener[0];
+
+	private long mVersion = 0;
+	private long mMoveVersion = 0;
+
 	private int mFlags = 0;
 	private int mRevealedCount = 0;
 	private int mTotalTilesToReveal;
 
+	private RandomGenerator mRandom;
+	private Long mSeed = null;
+
+	// null unless enabled, see setJournalEnabled
+	private Journal mJournal = null;
+	private final int mJournalState[] = new int[Journal.STATE_SIZE];
+	private final BitSet mJournalVisited = new BitSet();
+
+	// Always counted, they are only plain increments
+	private long mNeighbourVisits = 0;
+	private long mCellsScanned = 0;
+
+	private MetricsRecorder mMetricsRecorder = null;
+
 	public MinesGame(Difficulty difficulty) {
+		this(difficulty, new SplittableRandom());
+	}
+
+	// The same difficulty and seed always place the same mines for the same first open
+	public MinesGame(Difficulty difficulty, long seed) {
+		this(difficulty, seed, BoardStorage.HEAP);
+	}
+
+	public MinesGame(Difficulty difficulty, long seed, BoardStorage storage) {
+		this(difficulty, new SplittableRandom(seed), storage);
+		mSeed = seed;
+	}
+
+	// A game with the mines already placed, so the first open may hit one. Used to load saved games.
+	public MinesGame(Difficulty difficulty, BitSet mines) {
+		this(difficulty, mines, null, BoardStorage.HEAP);
+	}
+
+	// seed is the one the mines were placed from, or null
+	public MinesGame(Difficulty difficulty, BitSet mines, Long seed, BoardStorage storage) {
+		this(difficulty, seed != null ? new SplittableRandom(seed) : new SplittableRandom(), storage);
+		mSeed = seed;
+		placeMines(mines);
+	}
+
+	public MinesGame(Difficulty difficulty, RandomGenerator random) {
+		this(difficulty, random, BoardStorage.HEAP);
+	}
+
+	// The storage is kept by reset and by the snapshots
+	public MinesGame(Difficulty difficulty, RandomGenerator random, BoardStorage storage) {
+		mStorage = storage;
+		reset(difficulty, random);
+	}
+
+	// An independent copy of the game state, without the tile listeners. The cells are shared until one of the
+	// games changes them, so it takes time proportional to the pages and the frontier, not to the board.
+	// It changes other's page ownership, so it must be called by the thread that changes other. The copy can
+	// then be handed to any other thread. When the mines are not placed yet both games place the same ones for
+	// the same first open: a seeded game is not touched, the copy starts again from the seed, otherwise both
+	// games get a new generator from the same seed.
+	public MinesGame(MinesGame other) {
+		mDifficulty = other.mDifficulty;
+		mStorage = other.mStorage;
+		mCells = other.mCells.share();
+		mGameState = other.mGameState;
+		mBlowedMine = other.mBlowedMine;
+		mMinesPlaced = other.mMinesPlaced;
+		mFrontier = new IntList(other.mFrontier);
+		mVersion = other.mVersion;
+		mFlags = other.mFlags;
+		mRevealedCount = other.mRevealedCount;
+		mTotalTilesToReveal = other.mTotalTilesToReveal;
+		mSeed = other.mSeed;
+		if (other.mMinesPlaced) {
+			mRandom = other.mRandom;
+		}
+		else if (mSeed != null) {
+			// placing the mines starts again from the seed
+			mRandom = new SplittableRandom(mSeed);
+		}
+		else {
+			long seed = other.mRandom.nextLong();
+			other.mRandom = new SplittableRandom(seed);
+			mRandom = new SplittableRandom(seed);
+		}
+	}
+
+	// Starts a new game on this board, as the constructors with the same arguments would. The cells are reused
+	// when the number of tiles does not change, the listeners are kept. Used to replay many games without
+	// allocating a board for each one.
+	public void reset(Difficulty difficulty, long seed) {
+		reset(difficulty, new SplittableRandom(seed));
+		mSeed = seed;
+	}
+
+	public void reset(Difficulty difficulty, BitSet mines) {
+		reset(difficulty, new SplittableRandom());
+		placeMines(mines);
+	}
+
+	public void reset(Difficulty difficulty, RandomGenerator random) {
+		int oldCells = mDifficulty != null ? mDifficulty.width * mDifficulty.height : -1;
+
 		mDifficulty = difficulty;
+		mRandom = random;
+		mSeed = null;
 		checkValidDifficulty();
 
-		mTiles = new int[mDifficulty.width][mDifficulty.height];
-		mMarks = new TileMark[mDifficulty.width][mDifficulty.height];
-		mRevealed = new boolean[mDifficulty.width][mDifficulty.height];
-
-		for (int y = 0; y < mDifficulty.height; ++y) {
-			for (int x = 0; x < mDifficulty.width; ++x) {
-				mMarks[x][y] = TileMark.NOTHING;
-			}
+		int cells = mDifficulty.width * mDifficulty.height;
+		if (cells == oldCells)
+			mCells.clear();
+		else {
+			// the old cells can be freed while allocating the new ones
+			mCells = null;
+			mCells = Cells.allocate(mStorage, cells);
 		}
 
-		mTotalTilesToReveal = mDifficulty.width * mDifficulty.height - mDifficulty.mines;
+		mGameState = GameState.IN_PROGRESS;
+		mBlowedMine = null;
+		mMinesPlaced = false;
+		mOpenStack.clear();
+		mFrontier.clear();
+		mFlags = 0;
+		mRevealedCount = 0;
+		mTotalTilesToReveal = cells - mDifficulty.mines;
+
+		if (mJournal != null)
+			mJournal.clear();
+
+		// never back to the version of an earlier game, the hints are cached by version
+		++mVersion;
+	}
+
+	// A copy sharing the cells with this game, see the copy constructor
+	public MinesGame snapshot() {
+		return new MinesGame(this);
 	}
 
 	private void checkValidDifficulty() {
@@ -42,10 +190,63 @@ public class MinesGame {
 			throw new IllegalArgumentException("Invalid game size");
 		if (mDifficulty.mines < 0)
 			throw new IllegalArgumentException("Invalid number of mines");
+		if ((long) mDifficulty.width * mDifficulty.height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Game too large");
 		if (mDifficulty.mines >= mDifficulty.width * mDifficulty.height)
 			throw new IllegalArgumentException("Too many mines");
 	}
 
+	private int index(int x, int y) {
+		return y * mDifficulty.width + x;
+	}
+
+	private int cell(int index) {
+		return mCells.get(index);
+	}
+
+	private void setCell(int index, int cell) {
+		// the frontier bit only tracks the frontier list, it is not undone
+		if (mJournal != null) {
+			int oldCell = mCells.get(index);
+			if (((oldCell ^ cell) & ~CELL_FRONTIER & 0xFF) != 0)
+				mJournal.record(index, oldCell & ~CELL_FRONTIER, cell & ~CELL_FRONTIER);
+		}
+
+		mCells.set(index, cell);
+	}
+
+	private boolean isMine(int index) {
+		return (cell(index) & CELL_VALUE_MASK) == CELL_MINE;
+	}
+
+	private boolean isRevealed(int index) {
+		return (cell(index) & CELL_REVEALED) != 0;
+	}
+
+	private void setRevealed(int index) {
+		setCell(index, cell(index) | CELL_REVEALED);
+	}
+
+	private boolean isCandidate(int cell) {
+		return (cell & CELL_REVEALED) == 0 && (cell & CELL_MARK_MASK) != CELL_FLAG;
+	}
+
+	private TileMark getTileMark(int index) {
+		return MARKS[(cell(index) & CELL_MARK_MASK) >> CELL_MARK_SHIFT];
+	}
+
+	private void setTileMark(int index, TileMark mark) {
+		if (mark.ordinal() > TileMark.QUESTION_MARK.ordinal())
+			throw new IllegalArgumentException("Invalid mark " + mark);
+
+		setCell(index, (cell(index) & ~CELL_MARK_MASK) | (mark.ordinal() << CELL_MARK_SHIFT));
+	}
+
+	// The mines are placed on the first open
+	public boolean isStarted() {
+		return mMinesPlaced;
+	}
+
 	public boolean isGameOver() {
 		return mGameState != GameState.IN_PROGRESS;
 	}
@@ -62,143 +263,604 @@ public class MinesGame {
 		return mDifficulty.height;
 	}
 
+	public Difficulty getDifficulty() {
+		return mDifficulty;
+	}
+
+	public BoardStorage getStorage() {
+		return mStorage;
+	}
+
+	// The seed the game was created with, or null
+	public Long getSeed() {
+		return mSeed;
+	}
+
+	// The mines revealed here are undone with the move that lost the game
 	public void getDefeatReveal(List<Tile> revealMines, List<Tile> wrongFlags) {
+		if (mJournal != null && !mJournal.continueLastMove())
+			beginMove();
+
+		mCellsScanned += (long) mDifficulty.width * mDifficulty.height;
+
 		for (int y = 0; y < mDifficulty.height; ++y) {
 			for (int x = 0; x < mDifficulty.width; ++x) {
-				if (!mRevealed[x][y] && mTiles[x][y] == Tile.MINE && mMarks[x][y] != TileMark.FLAG) {
-					mRevealed[x][y] = true;
+				int index = index(x, y);
+				if (!isRevealed(index) && isMine(index) && getTileMark(index) != TileMark.FLAG) {
+					setRevealed(index);
 					revealMines.add(new Tile(x, y));
+					tileChanged(x, y);
 				}
-				if (!mRevealed[x][y] && mTiles[x][y] != Tile.MINE && mMarks[x][y] == TileMark.FLAG)
+				if (!isRevealed(index) && !isMine(index) && getTileMark(index) == TileMark.FLAG)
 					wrongFlags.add(new Tile(x, y));
 			}
 		}
+
+		endMove();
 	}
 
 	public Tile getBlowedMine() {
 		return mBlowedMine;
 	}
 
-	// return the revealed tiles
-	public void openTile(int x, int y, List<Tile> revealed) {
-		if (mRevealed[x][y] || mMarks[x][y] != TileMark.NOTHING)
-			return;
+	// revealed is called for each revealed tile, in the order they are revealed
+	public void openTile(int x, int y, TileVisitor revealed) {
+		int revealedBefore = mRevealedCount;
+
+		beginMove();
+		open(x, y, revealed);
+		boolean changed = endMove();
+
+		if (mMetricsRecorder != null && mRevealedCount > revealedBefore)
+			mMetricsRecorder.onCascade(mRevealedCount - revealedBefore);
+		if (changed)
+			moveMade(MoveType.OPEN, x, y, null);
+	}
 
-		mRevealed[x][y] = true;
-		revealed.add(new Tile(x, y));
+	private void open(int x, int y, TileVisitor revealed) {
+		int index = index(x, y);
+		if (isRevealed(index) || getTileMark(index) != TileMark.NOTHING)
+			return;
 
 		if (!mMinesPlaced)
 			placeMines(x, y);
 
-		if (mTiles[x][y] == Tile.MINE) {
+		if (isMine(index)) {
+			setRevealed(index);
+			revealed.visit(x, y);
+			tileChanged(x, y);
+
 			mGameState = GameState.OVER_DEFEAT;
 			mBlowedMine = new Tile(x, y);
 			return;
 		}
 
-		++mRevealedCount;
+		// Depth first flood fill, each stack frame is (x, y, next neighbour to visit)
+		mOpenStack.clear();
+		revealSafeTile(x, y, revealed);
+
+		while (!mOpenStack.isEmpty()) {
+			int frame = mOpenStack.size() - 3;
+			int fx = mOpenStack.get(frame);
+			int fy = mOpenStack.get(frame + 1);
+
+			int neighbour = mOpenStack.get(frame + 2);
+			int nx = 0;
+			int ny = 0;
+			for (; neighbour < 9; ++neighbour) {
+				nx = fx + neighbour / 3 - 1;
+				ny = fy + neighbour % 3 - 1;
+				if (neighbour != 4 && nx >= 0 && ny >= 0 && nx < mDifficulty.width && ny < mDifficulty.height) {
+					int cell = cell(index(nx, ny));
+					if ((cell & (CELL_REVEALED | CELL_MARK_MASK)) == 0)
+						break;
+				}
+			}
+
+			if (neighbour == 9) {
+				mOpenStack.removeLast(3);
+				continue;
+			}
 
-		if (mTiles[x][y] == 0) {
-			visitNeighbours(x, y, (nx, ny) -> {
-				if (!mRevealed[nx][ny] && mMarks[nx][ny] == TileMark.NOTHING)
-					openTile(nx, ny, revealed);
-			});
+			mOpenStack.set(frame + 2, neighbour + 1);
+			revealSafeTile(nx, ny, revealed);
 		}
 
 		if (mRevealedCount >= mTotalTilesToReveal)
 			mGameState = GameState.OVER_VICTORY;
 	}
 
-	private void placeMines(int firstX, int firstY) {
-		List<Tile> possibleTiles = new ArrayList<>();
+	private void revealSafeTile(int x, int y, TileVisitor revealed) {
+		int index = index(x, y);
+		setRevealed(index);
+		revealed.visit(x, y);
 
-		for (int y = 0; y < mDifficulty.height; ++y) {
-			for (int x = 0; x < mDifficulty.width; ++x) {
-				if (firstX != x || firstY != y)
-					possibleTiles.add(new Tile(x, y));
-			}
+		++mRevealedCount;
+
+		if ((cell(index) & CELL_VALUE_MASK) == 0) {
+			mOpenStack.add(x);
+			mOpenStack.add(y);
+			mOpenStack.add(0);
 		}
+		else
+			addToFrontier(x, y, index);
 
-		Collections.shuffle(possibleTiles);
-		for (int i = 0; i < mDifficulty.mines; ++i) {
-			Tile tile = possibleTiles.get(i);
-			mTiles[tile.x][tile.y] = Tile.MINE;
+		tileChanged(x, y);
+	}
 
-			visitNeighbours(tile.x, tile.y, (nx, ny) -> {
-				if (mTiles[nx][ny] != Tile.MINE)
-					++mTiles[nx][ny];
-			});
+	// Floyd's sampling of the mines among every tile but the first opened one, the board itself is the set of
+	// already chosen tiles, so it takes O(mines) time without allocating
+	private void placeMines(int firstX, int firstY) {
+		// the same mines as a replay from the seed, also when the first open was undone and made again
+		if (mSeed != null)
+			mRandom = new SplittableRandom(mSeed);
+
+		int first = index(firstX, firstY);
+		int candidates = mDifficulty.width * mDifficulty.height - 1;
+
+		for (int i = candidates - mDifficulty.mines; i < candidates; ++i) {
+			int candidate = mRandom.nextInt(i + 1);
+			int index = candidate < first ? candidate : candidate + 1;
+			if (isMine(index))
+				index = i < first ? i : i + 1;
+
+			placeMine(index);
 		}
 
 		mMinesPlaced = true;
 	}
 
-	public void openNeighbours(int x, int y, List<Tile> revealed) {
-		if (!mRevealed[x][y])
+	private void placeMines(BitSet mines) {
+		if (mines.cardinality() != mDifficulty.mines || mines.length() > mDifficulty.width * mDifficulty.height)
+			throw new IllegalArgumentException("Invalid mines");
+
+		for (int index = mines.nextSetBit(0); index >= 0; index = mines.nextSetBit(index + 1))
+			placeMine(index);
+		mMinesPlaced = true;
+	}
+
+	private void placeMine(int index) {
+		int x = index % mDifficulty.width;
+		int y = index / mDifficulty.width;
+
+		setCell(index, cell(index) | CELL_MINE);
+
+		int xEnd = Math.min(x + 2, mDifficulty.width);
+		int yEnd = Math.min(y + 2, mDifficulty.height);
+		for (int ny = Math.max(y - 1, 0); ny < yEnd; ++ny) {
+			for (int nx = Math.max(x - 1, 0); nx < xEnd; ++nx) {
+				int neighbour = index(nx, ny);
+				if (!isMine(neighbour))
+					setCell(neighbour, cell(neighbour) + 1);
+			}
+		}
+	}
+
+	public void openNeighbours(int x, int y, TileVisitor revealed) {
+		int revealedBefore = mRevealedCount;
+
+		beginMove();
+		openRevealedNeighbours(x, y, revealed);
+		boolean changed = endMove();
+
+		if (mMetricsRecorder != null && mRevealedCount > revealedBefore)
+			mMetricsRecorder.onCascade(mRevealedCount - revealedBefore);
+		if (changed)
+			moveMade(MoveType.OPEN_NEIGHBOURS, x, y, null);
+	}
+
+	private void openRevealedNeighbours(int x, int y, TileVisitor revealed) {
+		if (!isRevealed(index(x, y)))
 			return;
 
 		final int[] neighbourFlags = {0};
 		final int[] neighbourQuestionMarks = {0};
 
 		visitNeighbours(x, y, (nx, ny) -> {
-			if (mMarks[nx][ny] == TileMark.FLAG)
+			TileMark mark = getTileMark(index(nx, ny));
+			if (mark == TileMark.FLAG)
 				++neighbourFlags[0];
-			else if (mMarks[nx][ny] == TileMark.QUESTION_MARK)
+			else if (mark == TileMark.QUESTION_MARK)
 				++neighbourQuestionMarks[0];
 		});
 
-		if (neighbourFlags[0] == mTiles[x][y] && neighbourQuestionMarks[0] == 0) {
-			visitNeighbours(x, y, (nx, ny) -> openTile(nx, ny, revealed));
+		if (neighbourFlags[0] == getTile(x, y) && neighbourQuestionMarks[0] == 0) {
+			visitNeighbours(x, y, (nx, ny) -> open(nx, ny, revealed));
 		}
 	}
 
 	public void flagTile(int x, int y, TileMark setMark) {
-		if (mMarks[x][y] == TileMark.FLAG)
+		beginMove();
+
+		int index = index(x, y);
+		TileMark oldMark = getTileMark(index);
+		if (oldMark == TileMark.FLAG)
 			--mFlags;
 
-		mMarks[x][y] = setMark;
+		setTileMark(index, setMark);
 		if (setMark == TileMark.FLAG)
 			++mFlags;
+
+		tileMarkChanged(x, y, oldMark, setMark);
+		if (endMove())
+			moveMade(MoveType.SET_MARK, x, y, setMark);
 	}
 
 	public void flagTile(int x, int y) {
-		if (mMarks[x][y] == TileMark.FLAG)
+		beginMove();
+
+		int index = index(x, y);
+		TileMark oldMark = getTileMark(index);
+		if (oldMark == TileMark.FLAG)
 			--mFlags;
 
-		switch (mMarks[x][y]) {
+		switch (oldMark) {
 			case NOTHING:
-				mMarks[x][y] = TileMark.FLAG;
+				setTileMark(index, TileMark.FLAG);
 				++mFlags;
 				break;
 			case FLAG:
-				mMarks[x][y] = TileMark.QUESTION_MARK;
+				setTileMark(index, TileMark.QUESTION_MARK);
 				break;
 			case QUESTION_MARK:
-				mMarks[x][y] = TileMark.NOTHING;
+				setTileMark(index, TileMark.NOTHING);
 				break;
 			default:
 				break;
 		}
+
+		tileMarkChanged(x, y, oldMark, getTileMark(index));
+		if (endMove())
+			moveMade(MoveType.TOGGLE_MARK, x, y, null);
+	}
+
+	// Used to load a saved game: sets the tile as it was saved, without opening anything around it.
+	// The moves made before can not be undone anymore.
+	public void restoreTile(int x, int y, boolean revealed, TileMark mark) {
+		if (mJournal != null)
+			mJournal.clear();
+
+		int index = index(x, y);
+		if (getTileMark(index) == TileMark.FLAG)
+			--mFlags;
+
+		setTileMark(index, mark);
+		if (mark == TileMark.FLAG)
+			++mFlags;
+
+		if (revealed && !isRevealed(index)) {
+			setRevealed(index);
+
+			int value = cell(index) & CELL_VALUE_MASK;
+			if (value != CELL_MINE)
+				++mRevealedCount;
+			if (value != 0 && value != CELL_MINE)
+				addToFrontier(x, y, index);
+		}
+
+		tileChanged(x, y);
+	}
+
+	public void restoreGameState(GameState gameState, Tile blowedMine) {
+		if (mJournal != null)
+			mJournal.clear();
+
+		mGameState = gameState;
+		mBlowedMine = blowedMine;
+	}
+
+	// Keeps the changes of the moves, so they can be undone. Disabling it forgets them.
+	public void setJournalEnabled(boolean enabled) {
+		if (enabled && mJournal == null)
+			mJournal = new Journal();
+		else if (!enabled)
+			mJournal = null;
+	}
+
+	public boolean isJournalEnabled() {
+		return mJournal != null;
+	}
+
+	public boolean canUndo() {
+		return mJournal != null && mJournal.canUndo();
+	}
+
+	public boolean canRedo() {
+		return mJournal != null && mJournal.canRedo();
+	}
+
+	// Undoes the last move not undone yet, the changed tiles are visited once each. A new move forgets the
+	// undone ones. Returns false when there is nothing to undo.
+	public boolean undo(TileVisitor changed) {
+		if (!canUndo())
+			return false;
+
+		int move = mJournal.undoMove();
+		for (int change = mJournal.getChangeEnd(move) - 1; change >= mJournal.getChangeBegin(move); --change)
+			writeCell(mJournal.getChangeIndex(change), mJournal.getOldCell(change));
+
+		journaledMoveApplied(move, false, changed);
+		for (MoveListener listener : mMoveListeners)
+			listener.onUndo();
+		return true;
+	}
+
+	public boolean redo(TileVisitor changed) {
+		if (!canRedo())
+			return false;
+
+		int move = mJournal.redoMove();
+		for (int change = mJournal.getChangeBegin(move); change < mJournal.getChangeEnd(move); ++change)
+			writeCell(mJournal.getChangeIndex(change), mJournal.getNewCell(change));
+
+		journaledMoveApplied(move, true, changed);
+		for (MoveListener listener : mMoveListeners)
+			listener.onRedo();
+		return true;
+	}
+
+	// The moves made so far that can be undone, for rollback
+	public int getJournalPosition() {
+		return mJournal != null ? mJournal.getPosition() : 0;
+	}
+
+	// Undoes and forgets the moves made after position, to try moves and take them back. Each move is reported
+	// to the move listeners as undone. Without the journal the only position is 0, and there is nothing to undo.
+	public void rollback(int position) {
+		if (position < 0 || position > getJournalPosition())
+			throw new IllegalArgumentException("Invalid journal position " + position);
+		if (mJournal == null)
+			return;
+
+		while (getJournalPosition() > position)
+			undo(NO_VISITOR);
+		mJournal.truncate(position);
+	}
+
+	private void beginMove() {
+		mMoveVersion = mVersion;
+		if (mJournal != null) {
+			saveJournalState();
+			mJournal.beginMove(mJournalState);
+		}
+	}
+
+	// Returns true when the move changed the game, as the journal records it when enabled
+	private boolean endMove() {
+		if (mJournal == null)
+			return mVersion != mMoveVersion;
+
+		saveJournalState();
+		return mJournal.endMove(mJournalState);
+	}
+
+	private void saveJournalState() {
+		mJournalState[0] = mGameState.ordinal() << 1 | (mMinesPlaced ? 1 : 0);
+		mJournalState[1] = mFlags;
+		mJournalState[2] = mRevealedCount;
+		mJournalState[3] = mBlowedMine != null ? index(mBlowedMine.x, mBlowedMine.y) + 1 : 0;
+	}
+
+	// Sets a cell from the journal, keeping its frontier bit
+	private void writeCell(int index, int cell) {
+		mCells.set(index, cell | (mCells.get(index) & CELL_FRONTIER));
+	}
+
+	private void journaledMoveApplied(int move, boolean after, TileVisitor changed) {
+		int state = mJournal.getState(move, after, 0);
+		mGameState = GAME_STATES[state >>> 1];
+		mMinesPlaced = (state & 1) != 0;
+		mFlags = mJournal.getState(move, after, 1);
+		mRevealedCount = mJournal.getState(move, after, 2);
+
+		int blowedMine = mJournal.getState(move, after, 3) - 1;
+		mBlowedMine = blowedMine >= 0 ? new Tile(blowedMine % mDifficulty.width, blowedMine / mDifficulty.width) : null;
+
+		mJournalVisited.clear();
+		for (int change = mJournal.getChangeBegin(move); change < mJournal.getChangeEnd(move); ++change) {
+			int index = mJournal.getChangeIndex(change);
+			if (mJournalVisited.get(index))
+				continue;
+			mJournalVisited.set(index);
+
+			int x = index % mDifficulty.width;
+			int y = index / mDifficulty.width;
+
+			// revealed numbers that left the frontier may be back in it, the ones that are not anymore are
+			// removed when visiting it
+			int xEnd = Math.min(x + 2, mDifficulty.width);
+			int yEnd = Math.min(y + 2, mDifficulty.height);
+			for (int ny = Math.max(y - 1, 0); ny < yEnd; ++ny) {
+				for (int nx = Math.max(x - 1, 0); nx < xEnd; ++nx) {
+					int neighbour = index(nx, ny);
+					int value = cell(neighbour) & CELL_VALUE_MASK;
+					if (isRevealed(neighbour) && value != 0 && value != CELL_MINE)
+						addToFrontier(nx, ny, neighbour);
+				}
+			}
+
+			tileChanged(x, y);
+			changed.visit(x, y);
+		}
+	}
+
+	private void tileMarkChanged(int x, int y, TileMark oldMark, TileMark newMark) {
+		// revealed neighbours that left the frontier because of this flag may be back in it
+		if (oldMark == TileMark.FLAG && newMark != TileMark.FLAG) {
+			int xEnd = Math.min(x + 2, mDifficulty.width);
+			int yEnd = Math.min(y + 2, mDifficulty.height);
+			for (int ny = Math.max(y - 1, 0); ny < yEnd; ++ny) {
+				for (int nx = Math.max(x - 1, 0); nx < xEnd; ++nx) {
+					int neighbour = index(nx, ny);
+					int value = cell(neighbour) & CELL_VALUE_MASK;
+					if (isRevealed(neighbour) && value != 0 && value != CELL_MINE)
+						addToFrontier(nx, ny, neighbour);
+				}
+			}
+		}
+
+		tileChanged(x, y);
+	}
+
+	private void addToFrontier(int x, int y, int index) {
+		if ((cell(index) & CELL_FRONTIER) != 0)
+			return;
+
+		setCell(index, cell(index) | CELL_FRONTIER);
+		mFrontier.add(x);
+		mFrontier.add(y);
+	}
+
+	public boolean isFrontier(int x, int y) {
+		return isFrontier(x, y, index(x, y));
+	}
+
+	private boolean isFrontier(int x, int y, int index) {
+		int value = cell(index) & CELL_VALUE_MASK;
+		if (!isRevealed(index) || value == 0 || value == CELL_MINE)
+			return false;
+
+		int xEnd = Math.min(x + 2, mDifficulty.width);
+		int yEnd = Math.min(y + 2, mDifficulty.height);
+		for (int ny = Math.max(y - 1, 0); ny < yEnd; ++ny) {
+			for (int nx = Math.max(x - 1, 0); nx < xEnd; ++nx) {
+				if (isCandidate(cell(index(nx, ny))))
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	// Visits the revealed numbers with hidden, unflagged neighbours, in no particular order.
+	// The visitor must not change the game.
+	public void visitFrontier(TileVisitor visitor) {
+		int i = 0;
+		while (i < mFrontier.size()) {
+			++mCellsScanned;
+
+			int x = mFrontier.get(i);
+			int y = mFrontier.get(i + 1);
+			int index = index(x, y);
+
+			if (isFrontier(x, y, index)) {
+				visitor.visit(x, y);
+				i += 2;
+			}
+			else {
+				setCell(index, cell(index) & ~CELL_FRONTIER);
+
+				int last = mFrontier.size() - 2;
+				mFrontier.set(i, mFrontier.get(last));
+				mFrontier.set(i + 1, mFrontier.get(last + 1));
+				mFrontier.removeLast(2);
+			}
+		}
+	}
+
+	// The listener is called after a tile is revealed or its mark changes
+	public void addTileListener(TileVisitor listener) {
+		TileVisitor listeners[] = Arrays.copyOf(mTileListeners, mTileListeners.length + 1);
+		listeners[mTileListeners.length] = listener;
+		mTileListeners = listeners;
+	}
+
+	public void removeTileListener(TileVisitor listener) {
+		for (int i = 0; i < mTileListeners.length; ++i) {
+			if (mTileListeners[i] == listener) {
+				TileVisitor listeners[] = new TileVisitor[mTileListeners.length - 1];
+				System.arraycopy(mTileListeners, 0, listeners, 0, i);
+				System.arraycopy(mTileListeners, i + 1, listeners, i, listeners.length - i);
+				mTileListeners = listeners;
+				return;
+			}
+		}
+	}
+
+	// The listener is called after each call to openTile, openNeighbours or flagTile that changed the game, mark
+	// is only set for MoveType.SET_MARK. The moves made by the game itself, like the neighbours opened by a
+	// cascade, are not reported. Undo and redo are reported too, and rollback as an undo for each move, so the
+	// moves reported and not undone are always the ones that made the board. A new move forgets the undone ones.
+	public void addMoveListener(MoveListener listener) {
+		MoveListener listeners[] = Arrays.copyOf(mMoveListeners, mMoveListeners.length + 1);
+		listeners[mMoveListeners.length] = listener;
+		mMoveListeners = listeners;
+	}
+
+	public void removeMoveListener(MoveListener listener) {
+		for (int i = 0; i < mMoveListeners.length; ++i) {
+			if (mMoveListeners[i] == listener) {
+				MoveListener listeners[] = new MoveListener[mMoveListeners.length - 1];
+				System.arraycopy(mMoveListeners, 0, listeners, 0, i);
+				System.arraycopy(mMoveListeners, i + 1, listeners, i, listeners.length - i);
+				mMoveListeners = listeners;
+				return;
+			}
+		}
+	}
+
+	private void moveMade(MoveType moveType, int x, int y, TileMark mark) {
+		for (MoveListener listener : mMoveListeners)
+			listener.onMove(moveType, x, y, mark);
+	}
+
+	private void tileChanged(int x, int y) {
+		++mVersion;
+
+		for (TileVisitor listener : mTileListeners)
+			listener.visit(x, y);
+	}
+
+	// Incremented on every change of a tile, a snapshot keeps the version it was taken at
+	public long getVersion() {
+		return mVersion;
+	}
+
+	// Set to measure the cascades, or null
+	public void setMetricsRecorder(MetricsRecorder recorder) {
+		mMetricsRecorder = recorder;
+	}
+
+	// Calls to visitNeighbours so far
+	public long getNeighbourVisits() {
+		return mNeighbourVisits;
+	}
+
+	// Tiles looked at by visitFrontier and getDefeatReveal so far
+	public long getCellsScanned() {
+		return mCellsScanned;
 	}
 
 	public int getRemainingMines() {
 		return mDifficulty.mines - mFlags;
 	}
 
+	public int getFlags() {
+		return mFlags;
+	}
+
+	// Safe tiles revealed so far
+	public int getRevealedTiles() {
+		return mRevealedCount;
+	}
+
 	// Tile.MINE is a mine
 	public int getTile(int x, int y) {
-		return mTiles[x][y];
+		int value = cell(index(x, y)) & CELL_VALUE_MASK;
+		return value == CELL_MINE ? Tile.MINE : value;
 	}
 
 	public boolean isRevealed(int x, int y) {
-		return mRevealed[x][y];
+		return isRevealed(index(x, y));
 	}
 
 	public TileMark getTileMark(int x, int y) {
-		return mMarks[x][y];
+		return getTileMark(index(x, y));
 	}
 
 	public void visitNeighbours(int x, int y, TileVisitor visitor) {
+		++mNeighbourVisits;
+
 		int xBegin = Math.max(x - 1, 0);
 		int xEnd = Math.min(x + 2, mDifficulty.width);
 		int yBegin = Math.max(y - 1, 0);
@@ -215,4 +877,14 @@ public class MinesGame {
 	public interface TileVisitor {
 		void visit(int x, int y);
 	}
+
+	public interface MoveListener {
+		void onMove(MoveType moveType, int x, int y, TileMark mark);
+
+		// The last move not undone was undone
+		void onUndo();
+
+		// The last undone move was made again
+		void onRedo();
+	}
 }
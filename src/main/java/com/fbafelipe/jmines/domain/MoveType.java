@@ -0,0 +1,26 @@
+package com.fbafelipe.jmines.domain;
+
+// The changes a player can make to a game, each one is a MinesGame method
+public enum MoveType {
+	OPEN,
+	OPEN_NEIGHBOURS,
+	TOGGLE_MARK,
+	SET_MARK; // the only one using the mark
+
+	public void apply(MinesGame game, int x, int y, TileMark mark, MinesGame.TileVisitor revealed) {
+		switch (this) {
+			case OPEN:
+				game.openTile(x, y, revealed);
+				break;
+			case OPEN_NEIGHBOURS:
+				game.openNeighbours(x, y, revealed);
+				break;
+			case TOGGLE_MARK:
+				game.flagTile(x, y);
+				break;
+			case SET_MARK:
+				game.flagTile(x, y, mark);
+				break;
+		}
+	}
+}
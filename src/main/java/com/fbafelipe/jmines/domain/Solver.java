@@ -1,225 +1,248 @@
 package com.fbafelipe.jmines.domain;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
-public class Solver {
+public class Solver implements AutoCloseable {
 	private MinesGame mGame;
+	private MinesGame.TileVisitor mTileListener = this::onTileChanged;
 
-	public Solver(MinesGame game) {
-		mGame = game;
-	}
-
-	public Step hint() {
-		final SolverContext context = new SolverContext(mGame.getWidth(), mGame.getHeight());
+	private SolverStrategy mStrategies[];
+	private TierStatistics mStatistics[];
 
-		for (int y = 0; y < mGame.getHeight(); ++y) {
-			for (int x = 0; x < mGame.getWidth(); ++x) {
-				Step step = solveTile(x, y, context);
-				if (step != null)
-					return step;
-			}
-		}
+	private final FirstStepSink mFirstStepSink = new FirstStepSink();
+	private final CollectingStepSink mCollectingStepSink = new CollectingStepSink();
 
-		for (int y = 0; y < mGame.getHeight(); ++y) {
-			for (int x = 0; x < mGame.getWidth(); ++x) {
-				Step step = solveTileWithMineGroups(x, y, context);
-				if (step != null)
-					return step;
-			}
-		}
+	private MetricsRecorder mMetricsRecorder = null;
 
-		return null;
+	public Solver(MinesGame game) {
+		this(game, createDefaultStrategies(game));
 	}
 
-	private Step solveTile(int x, int y, final SolverContext context) {
-		if (!mGame.isRevealed(x, y) || mGame.getTile(x, y) == 0)
-			return null;
-
-		countFlagsAndCandidates(x, y, context);
-
-		if (context.firstCandidate == null)
-			return null;
+	// The strategies must have been created for the same game, they are asked in order
+	public Solver(MinesGame game, List<SolverStrategy> strategies) {
+		mGame = game;
+		mStrategies = strategies.toArray(new SolverStrategy[0]);
 
-		if (context.flags == mGame.getTile(x, y))
-			return new Step(context.firstCandidate, StepType.OPEN);
-		else if (context.flags + context.candidateTiles == mGame.getTile(x, y))
-			return new Step(context.firstCandidate, StepType.FLAG);
+		mStatistics = new TierStatistics[mStrategies.length];
+		for (int i = 0; i < mStrategies.length; ++i)
+			mStatistics[i] = new TierStatistics(mStrategies[i].getName());
 
-		createMissingMineGroups(x, y, context);
+		mGame.addTileListener(mTileListener);
+	}
 
-		return null;
+	// Counting, then mine groups, then the constraint analysis, then guessing from the mine probabilities
+	public static List<SolverStrategy> createDefaultStrategies(MinesGame game) {
+		ConstraintStrategy constraints = new ConstraintStrategy(game);
+		return Arrays.asList(
+				new CountingStrategy(game),
+				new MineGroupStrategy(game),
+				constraints,
+				new GuessStrategy(game, constraints)
+		);
 	}
 
-	private Step solveTileWithMineGroups(final int x, final int y, final SolverContext context) {
-		if (!mGame.isRevealed(x, y) || mGame.getTile(x, y) == 0)
-			return null;
+	// Stops tracking the changes in the game
+	@Override
+	public void close() {
+		mGame.removeTileListener(mTileListener);
+	}
 
-		context.step = null;
-		countFlagsAndCandidates(x, y, context);
+	private void onTileChanged(int x, int y) {
+		for (SolverStrategy strategy : mStrategies)
+			strategy.onTileChanged(x, y);
+	}
 
-		if (context.firstCandidate == null)
-			return null;
+	// A certain step, or null if none of the strategies can find one. The solvers on an interrupted thread throw
+	// CancellationException, between the strategies and during the constraint search, and can still be used after.
+	public Step hint() {
+		return findStep(false);
+	}
 
-		mGame.visitNeighbours(x, y, (nx, ny) -> {
-			if (context.step != null)
-				return;
+	// Used when hint cannot find a safe step
+	public Step guess() {
+		return findStep(true);
+	}
 
-			if (context.mineGroups[nx][ny] != null) {
-				int tilesIsNeighbour = 0;
-				int tilesIsNotNeighbour = 0;
-				for (Tile t : context.mineGroups[nx][ny].tiles) {
-					if (t.isNeighbour(x, y))
-						++tilesIsNeighbour;
-					else
-						++tilesIsNotNeighbour;
-				}
-				int minMinesFromGroup = context.mineGroups[nx][ny].mines - tilesIsNotNeighbour;
-				if (minMinesFromGroup > 0) {
-					if (context.flags + minMinesFromGroup == mGame.getTile(x, y) && tilesIsNeighbour < context.candidateTiles) {
-						Tile tile = findFirstNeighbourNotInMineGroup(x, y, context.mineGroups[nx][ny], context);
-						context.step = new Step(tile, StepType.OPEN);
-					}
-					else {
-						int maxMinesFromGroup = Math.min(context.mineGroups[nx][ny].mines, tilesIsNeighbour);
-						int neighboursNotInGroup = countNeighboursNotInMineGroup(x, y, context.mineGroups[nx][ny], context);
-						if (neighboursNotInGroup > 0 && minMinesFromGroup == maxMinesFromGroup && context.flags + maxMinesFromGroup + neighboursNotInGroup == mGame.getTile(x, y)) {
-							Tile tile = findFirstNeighbourNotInMineGroup(x, y, context.mineGroups[nx][ny], context);
-							context.step = new Step(tile, StepType.FLAG);
-						}
-					}
-				}
+	private Step findStep(boolean guess) {
+		for (int i = 0; i < mStrategies.length; ++i) {
+			if (mStrategies[i].isGuess() != guess)
+				continue;
+			checkInterrupted();
+
+			long neighbourVisits = mGame.getNeighbourVisits();
+			long cellsScanned = mGame.getCellsScanned();
+			long start = System.nanoTime();
+			mFirstStepSink.step = null;
+			mStrategies[i].solve(mFirstStepSink);
+			long nanos = System.nanoTime() - start;
+			mStatistics[i].record(nanos, mFirstStepSink.step != null);
+
+			if (mMetricsRecorder != null) {
+				mMetricsRecorder.onSolverPass(mStrategies[i].getName(), nanos, mFirstStepSink.step != null ? 1 : 0,
+						mGame.getNeighbourVisits() - neighbourVisits, mGame.getCellsScanned() - cellsScanned);
+				if (guess && mFirstStepSink.step != null)
+					mMetricsRecorder.onGuess(mStrategies[i].getName());
 			}
-		});
 
-		return context.step;
+			if (mFirstStepSink.step != null)
+				return mFirstStepSink.step;
+		}
+
+		return null;
 	}
 
-	private Tile findFirstNeighbourNotInMineGroup(int x, int y, final MineGroup mineGroup, final SolverContext context) {
-		final Tile[] tile = {null};
+	// Every certain step the strategies can find in the current state, at most one for each tile. The steps stay
+	// valid while the batch is applied, so the caller only needs to ask again after executing all of them.
+	// The counting and mine group tiers give every tile they can solve, the steps that only the constraint
+	// analysis finds are missed in the components too big to be enumerated.
+	public List<Step> allDeductions() {
+		return collectSteps(false);
+	}
 
-		mGame.visitNeighbours(x, y, (nx, ny) -> {
-			if (tile[0] != null || mGame.isRevealed(nx, ny) || mGame.getTileMark(nx, ny) == TileMark.FLAG)
-				return;
+	// Like allDeductions, but stops at the first strategy that finds any step. Cheaper when the batch is
+	// executed before asking again, the later strategies only run once the earlier ones are stuck.
+	public List<Step> nextDeductions() {
+		return collectSteps(true);
+	}
 
-			boolean isInGroup = false;
-			for (Tile t : mineGroup.tiles) {
-				if (t.equals(nx, ny)) {
-					isInGroup = true;
-					break;
-				}
+	private List<Step> collectSteps(boolean firstTier) {
+		List<Step> steps = new ArrayList<>();
+		mCollectingStepSink.begin(steps, mGame.getWidth());
+
+		for (int i = 0; i < mStrategies.length; ++i) {
+			if (mStrategies[i].isGuess())
+				continue;
+			checkInterrupted();
+
+			int found = steps.size();
+			long neighbourVisits = mGame.getNeighbourVisits();
+			long cellsScanned = mGame.getCellsScanned();
+			long start = System.nanoTime();
+			mStrategies[i].solve(mCollectingStepSink);
+			long nanos = System.nanoTime() - start;
+			mStatistics[i].record(nanos, steps.size() > found);
+
+			if (mMetricsRecorder != null) {
+				mMetricsRecorder.onSolverPass(mStrategies[i].getName(), nanos, steps.size() - found,
+						mGame.getNeighbourVisits() - neighbourVisits, mGame.getCellsScanned() - cellsScanned);
 			}
 
-			if (!isInGroup)
-				tile[0] = new Tile(nx, ny);
-		});
+			if (firstTier && !steps.isEmpty())
+				break;
+		}
 
-		return tile[0];
+		mCollectingStepSink.begin(null, 0);
+		return steps;
 	}
 
-	private int countNeighboursNotInMineGroup(int x, int y, final MineGroup mineGroup, final SolverContext context) {
-		final int[] count = {0};
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted())
+			throw new CancellationException();
+	}
 
-		mGame.visitNeighbours(x, y, (nx, ny) -> {
-			if (mGame.isRevealed(nx, ny) || mGame.getTileMark(nx, ny) == TileMark.FLAG)
-				return;
+	// Set to measure every pass of the strategies and the guesses, or null
+	public void setMetricsRecorder(MetricsRecorder recorder) {
+		mMetricsRecorder = recorder;
+	}
 
-			boolean isInGroup = false;
-			for (Tile t : mineGroup.tiles) {
-				if (t.equals(nx, ny)) {
-					isInGroup = true;
+	// One entry for each strategy, in order
+	public List<TierStatistics> getTierStatistics() {
+		return Collections.unmodifiableList(Arrays.asList(mStatistics));
+	}
+
+	public void autoSolve(AutoSolveListener listener) {
+		while (!mGame.isGameOver()) {
+			List<Step> steps = nextDeductions();
+			if (steps.isEmpty()) {
+				Step step = guess();
+				if (step == null)
 					break;
-				}
-			}
 
-			if (!isInGroup)
-				++count[0];
-		});
+				listener.onGuess(step);
+				steps = Collections.singletonList(step);
+			}
 
-		return count[0];
+			if (!listener.onSteps(mGame, steps))
+				return;
+		}
 	}
 
-	private void countFlagsAndCandidates(int x, int y, final SolverContext context) {
-		context.flags = 0;
-		context.candidateTiles = 0;
-		context.firstCandidate = null;
-
-		mGame.visitNeighbours(x, y, (nx, ny) -> {
-			if (!mGame.isRevealed(nx, ny)) {
-				if (mGame.getTileMark(nx, ny) == TileMark.FLAG)
-					++context.flags;
-				else {
-					++context.candidateTiles;
-					context.firstCandidate = new Tile(nx, ny);
-				}
-			}
-		});
-	}
+	private static class FirstStepSink implements SolverStrategy.StepSink {
+		public Step step;
 
-	private void createMissingMineGroups(int x, int y, final SolverContext context) {
-		int missingMines = mGame.getTile(x, y) - context.flags;
-		if (missingMines > 0) {
-			final MineGroup group = new MineGroup(missingMines);
-			context.mineGroups[x][y] = group;
-			mGame.visitNeighbours(x, y, (nx, ny) -> {
-				if (!mGame.isRevealed(nx, ny) && mGame.getTileMark(nx, ny) != TileMark.FLAG)
-					group.tiles.add(new Tile(nx, ny));
-			});
+		@Override
+		public boolean accept(Step step) {
+			this.step = step;
+			return false;
 		}
 	}
 
-	public void autoSolve(AutoSolveListener listener) {
-		while (!mGame.isGameOver()) {
-			Step step = hint();
-			if (step == null)
-				step = randomGuess();
-
-			if (step == null)
-				break;
+	// Collects the steps, ignoring a tile that already has one
+	private static class CollectingStepSink implements SolverStrategy.StepSink {
+		private List<Step> mSteps;
+		private int mWidth;
+		private final BitSet mTiles = new BitSet();
 
-			if (!listener.onStep(step))
-				break;
+		public void begin(List<Step> steps, int width) {
+			mSteps = steps;
+			mWidth = width;
+			mTiles.clear();
+		}
 
-			try {
-				Thread.sleep(25);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		@Override
+		public boolean accept(Step step) {
+			int index = step.y * mWidth + step.x;
+			if (!mTiles.get(index)) {
+				mTiles.set(index);
+				mSteps.add(step);
 			}
+			return true;
 		}
 	}
 
-	private Step randomGuess() {
-		for (int y = 0; y < mGame.getHeight(); ++y) {
-			for (int x = 0; x < mGame.getWidth(); ++x) {
-				if (!mGame.isRevealed(x, y) && mGame.getTileMark(x, y) != TileMark.FLAG)
-					return new Step(x, y, StepType.OPEN);
-			}
-		}
+	public static class TierStatistics {
+		private final String mName;
+		private long mCalls = 0;
+		private long mHits = 0;
+		private long mNanos = 0;
 
-		return null;
-	}
+		public TierStatistics(String name) {
+			mName = name;
+		}
 
-	private static class SolverContext {
-		public int flags = 0;
-		public int candidateTiles = 0;
-		public Tile firstCandidate = null;
+		private void record(long nanos, boolean hit) {
+			++mCalls;
+			mNanos += nanos;
+			if (hit)
+				++mHits;
+		}
 
-		public Step step;
+		public String getName() {
+			return mName;
+		}
 
-		public MineGroup[][] mineGroups;
+		// How many times the tier was asked for a step
+		public long getCalls() {
+			return mCalls;
+		}
 
-		public SolverContext(int width, int height) {
-			mineGroups = new MineGroup[width][height];
+		// How many times it found one
+		public long getHits() {
+			return mHits;
 		}
-	}
 
-	private static class MineGroup {
-		private int mines;
-		public List<Tile> tiles;
+		public long getNanos() {
+			return mNanos;
+		}
 
-		public MineGroup(int m) {
-			mines = m;
-			tiles = new ArrayList<>();
+		@Override
+		public String toString() {
+			return String.format("%s: %d/%d hits, %.3f ms", mName, mHits, mCalls, mNanos / 1e6);
 		}
 	}
 
@@ -245,6 +268,18 @@ public class Solver {
 			stepType = t;
 		}
 
+		public void execute(MinesGame game, MinesGame.TileVisitor revealed) {
+			switch (stepType) {
+				case FLAG:
+					if (!game.isRevealed(x, y))
+						game.flagTile(x, y, TileMark.FLAG);
+					break;
+				case OPEN:
+					game.openTile(x, y, revealed);
+					break;
+			}
+		}
+
 		@Override
 		public String toString() {
 			return stepType.name() + " " + x + "," + y;
@@ -253,5 +288,24 @@ public class Solver {
 
 	public interface AutoSolveListener {
 		boolean onStep(Step step); // return true if should continue
+
+		// Called before a guess is passed to onSteps
+		default void onGuess(Step step) {}
+
+		// A batch of steps that stay valid together, by default they are passed one by one to onStep
+		default boolean onSteps(MinesGame game, List<Step> steps) {
+			for (Step step : steps) {
+				if (game.isGameOver())
+					break;
+
+				// opened by an earlier step of the batch
+				if (game.isRevealed(step.x, step.y))
+					continue;
+
+				if (!onStep(step))
+					return false;
+			}
+			return true;
+		}
 	}
 }
@@ -0,0 +1,22 @@
+package com.fbafelipe.jmines.domain;
+
+// A tier of the Solver. The Solver asks its strategies in order and only asks the next one when the previous ones
+// found no step, so cheaper strategies should come first.
+public interface SolverStrategy {
+	String getName();
+
+	// Guessing strategies may return steps that are not certain, they are only asked by Solver.guess
+	default boolean isGuess() {
+		return false;
+	}
+
+	// Called after a tile of the game is revealed or its mark changes
+	void onTileChanged(int x, int y);
+
+	// Gives the steps found to the sink, until it returns false
+	void solve(StepSink sink);
+
+	interface StepSink {
+		boolean accept(Solver.Step step); // return true to receive more steps
+	}
+}
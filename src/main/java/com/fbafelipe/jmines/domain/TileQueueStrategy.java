@@ -0,0 +1,94 @@
+package com.fbafelipe.jmines.domain;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Base for strategies that solve each revealed tile on its own. A tile is checked again only when something
+// changes within the given radius of it, and leaves the queue once no step can be found for it.
+public abstract class TileQueueStrategy implements SolverStrategy {
+	protected final MinesGame mGame;
+
+	private final int mRadius;
+
+	// tile indexes, y * width + x
+	private IntList mQueue = new IntList();
+	private BitSet mQueued = new BitSet();
+
+	private final List<Solver.Step> mTileSteps = new ArrayList<>();
+
+	protected TileQueueStrategy(MinesGame game, int radius) {
+		mGame = game;
+		mRadius = radius;
+
+		mGame.visitFrontier(this::enqueue);
+	}
+
+	// Adds every step that can be found around the tile, so a batch of steps misses none of them
+	protected abstract void solveTile(int x, int y, List<Solver.Step> steps);
+
+	private void enqueue(int x, int y) {
+		int index = y * mGame.getWidth() + x;
+		if (!mQueued.get(index)) {
+			mQueued.set(index);
+			mQueue.add(index);
+		}
+	}
+
+	@Override
+	public void onTileChanged(int x, int y) {
+		int xEnd = Math.min(x + mRadius + 1, mGame.getWidth());
+		int yEnd = Math.min(y + mRadius + 1, mGame.getHeight());
+		for (int ny = Math.max(y - mRadius, 0); ny < yEnd; ++ny) {
+			for (int nx = Math.max(x - mRadius, 0); nx < xEnd; ++nx) {
+				if (mGame.isRevealed(nx, ny))
+					enqueue(nx, ny);
+			}
+		}
+	}
+
+	@Override
+	public void solve(StepSink sink) {
+		// the most recently changed tiles first
+		for (int i = mQueue.size() - 1; i >= 0; --i) {
+			int index = mQueue.get(i);
+			mTileSteps.clear();
+			solveTile(index % mGame.getWidth(), index / mGame.getWidth(), mTileSteps);
+
+			if (mTileSteps.isEmpty()) {
+				mQueued.clear(index);
+				mQueue.set(i, mQueue.get(mQueue.size() - 1));
+				mQueue.removeLast(1);
+				continue;
+			}
+
+			for (Solver.Step step : mTileSteps) {
+				if (!sink.accept(step))
+					return;
+			}
+		}
+	}
+
+	protected void countFlagsAndCandidates(int x, int y, final SolverContext context) {
+		context.flags = 0;
+		context.candidateTiles = 0;
+		context.firstCandidate = null;
+
+		mGame.visitNeighbours(x, y, (nx, ny) -> {
+			if (!mGame.isRevealed(nx, ny)) {
+				if (mGame.getTileMark(nx, ny) == TileMark.FLAG)
+					++context.flags;
+				else {
+					++context.candidateTiles;
+					context.firstCandidate = new Tile(nx, ny);
+				}
+			}
+		});
+	}
+
+	protected static class SolverContext {
+		public int flags = 0;
+		public int candidateTiles = 0;
+		public Tile firstCandidate = null;
+	}
+}
@@ -0,0 +1,77 @@
+package com.fbafelipe.jmines.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts values in power of two buckets, bucket b holds the values from 2^(b-1) to 2^b - 1 and bucket 0 the ones
+// below 1. Recording is lock free and cheap under contention, so it can be shared by many threads. A percentile is
+// the upper bound of its bucket, at most twice the real value.
+public class Histogram {
+	private static final int BUCKETS = 64;
+
+	private final LongAdder mBuckets[] = new LongAdder[BUCKETS];
+	private final LongAdder mSum = new LongAdder();
+	private final LongAccumulator mMax = new LongAccumulator(Math::max, 0);
+
+	public Histogram() {
+		for (int i = 0; i < BUCKETS; ++i)
+			mBuckets[i] = new LongAdder();
+	}
+
+	public void record(long value) {
+		int bucket = value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+		mBuckets[bucket].increment();
+		mSum.add(value);
+		mMax.accumulate(value);
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : mBuckets)
+			count += bucket.sum();
+		return count;
+	}
+
+	public long getSum() {
+		return mSum.sum();
+	}
+
+	public long getMax() {
+		return mMax.get();
+	}
+
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0.0 : (double) getSum() / count;
+	}
+
+	// percentile from 0 to 100
+	public long getPercentile(double percentile) {
+		long counts[] = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			counts[i] = mBuckets[i].sum();
+			count += counts[i];
+		}
+
+		if (count == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += counts[i];
+			if (seen >= rank)
+				return i == 0 ? 0 : Math.min((1L << i) - 1, getMax());
+		}
+
+		return getMax();
+	}
+
+	public void reset() {
+		for (LongAdder bucket : mBuckets)
+			bucket.reset();
+		mSum.reset();
+		mMax.reset();
+	}
+}
@@ -0,0 +1,90 @@
+package com.fbafelipe.jmines.metrics;
+
+import java.beans.ConstructorProperties;
+
+// The totals of the passes of one solver strategy, as shown by SolverMetricsMXBean
+public class PassStatistics {
+	private final String mStrategy;
+	private final long mPasses;
+	private final long mHits;
+	private final long mSteps;
+	private final long mGuesses;
+	private final long mTotalNanos;
+	private final long mMedianNanos;
+	private final long mP99Nanos;
+	private final long mMaxNanos;
+	private final long mNeighbourVisits;
+	private final long mCellsScanned;
+
+	@ConstructorProperties({"strategy", "passes", "hits", "steps", "guesses", "totalNanos", "medianNanos", "p99Nanos",
+			"maxNanos", "neighbourVisits", "cellsScanned"})
+	public PassStatistics(String strategy, long passes, long hits, long steps, long guesses, long totalNanos,
+			long medianNanos, long p99Nanos, long maxNanos, long neighbourVisits, long cellsScanned) {
+		mStrategy = strategy;
+		mPasses = passes;
+		mHits = hits;
+		mSteps = steps;
+		mGuesses = guesses;
+		mTotalNanos = totalNanos;
+		mMedianNanos = medianNanos;
+		mP99Nanos = p99Nanos;
+		mMaxNanos = maxNanos;
+		mNeighbourVisits = neighbourVisits;
+		mCellsScanned = cellsScanned;
+	}
+
+	public String getStrategy() {
+		return mStrategy;
+	}
+
+	// How many times the strategy was asked for steps
+	public long getPasses() {
+		return mPasses;
+	}
+
+	// The passes that found any step
+	public long getHits() {
+		return mHits;
+	}
+
+	public long getSteps() {
+		return mSteps;
+	}
+
+	// The steps returned by Solver.guess
+	public long getGuesses() {
+		return mGuesses;
+	}
+
+	public long getTotalNanos() {
+		return mTotalNanos;
+	}
+
+	// The percentiles are the upper bounds of power of two buckets, see Histogram
+	public long getMedianNanos() {
+		return mMedianNanos;
+	}
+
+	public long getP99Nanos() {
+		return mP99Nanos;
+	}
+
+	public long getMaxNanos() {
+		return mMaxNanos;
+	}
+
+	public long getNeighbourVisits() {
+		return mNeighbourVisits;
+	}
+
+	public long getCellsScanned() {
+		return mCellsScanned;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d passes, %d hits, %d steps, %d guesses, %.3f ms, p50 %d ns, p99 %d ns, max %d ns, %d neighbour visits, %d cells scanned",
+				mStrategy, mPasses, mHits, mSteps, mGuesses, mTotalNanos / 1e6, mMedianNanos, mP99Nanos, mMaxNanos,
+				mNeighbourVisits, mCellsScanned);
+	}
+}
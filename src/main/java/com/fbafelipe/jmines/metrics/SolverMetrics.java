@@ -0,0 +1,174 @@
+package com.fbafelipe.jmines.metrics;
+
+import com.fbafelipe.jmines.domain.MetricsRecorder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// A MetricsRecorder keeping counters and latency histograms for each solver strategy and the cascade sizes.
+// It can be shared by any number of solvers and games on any threads. Registered, it is visible to JConsole or
+// any other JMX client.
+public class SolverMetrics implements MetricsRecorder, SolverMetricsMXBean {
+	private final ConcurrentHashMap<String, Pass> mPasses = new ConcurrentHashMap<>();
+	private final List<Pass> mPassOrder = new CopyOnWriteArrayList<>();
+
+	private final LongAdder mGuesses = new LongAdder();
+	private final Histogram mCascades = new Histogram();
+
+	private ObjectName mObjectName = null;
+
+	@Override
+	public void onSolverPass(String strategy, long nanos, int steps, long neighbourVisits, long cellsScanned) {
+		Pass pass = getPass(strategy);
+		pass.nanos.record(nanos);
+		if (steps > 0) {
+			pass.hits.increment();
+			pass.steps.add(steps);
+		}
+		pass.neighbourVisits.add(neighbourVisits);
+		pass.cellsScanned.add(cellsScanned);
+	}
+
+	@Override
+	public void onGuess(String strategy) {
+		getPass(strategy).guesses.increment();
+		mGuesses.increment();
+	}
+
+	@Override
+	public void onCascade(int tiles) {
+		mCascades.record(tiles);
+	}
+
+	private Pass getPass(String strategy) {
+		Pass pass = mPasses.get(strategy);
+		if (pass == null) {
+			pass = mPasses.computeIfAbsent(strategy, (name) -> {
+				Pass created = new Pass(name);
+				mPassOrder.add(created);
+				return created;
+			});
+		}
+		return pass;
+	}
+
+	@Override
+	public List<PassStatistics> getPassStatistics() {
+		List<PassStatistics> statistics = new ArrayList<>();
+		for (Pass pass : mPassOrder) {
+			statistics.add(new PassStatistics(
+					pass.strategy,
+					pass.nanos.getCount(),
+					pass.hits.sum(),
+					pass.steps.sum(),
+					pass.guesses.sum(),
+					pass.nanos.getSum(),
+					pass.nanos.getPercentile(50.0),
+					pass.nanos.getPercentile(99.0),
+					pass.nanos.getMax(),
+					pass.neighbourVisits.sum(),
+					pass.cellsScanned.sum()
+			));
+		}
+		return statistics;
+	}
+
+	@Override
+	public long getGuesses() {
+		return mGuesses.sum();
+	}
+
+	@Override
+	public long getCascades() {
+		return mCascades.getCount();
+	}
+
+	@Override
+	public long getCascadeTiles() {
+		return mCascades.getSum();
+	}
+
+	@Override
+	public double getMeanCascadeTiles() {
+		return mCascades.getMean();
+	}
+
+	@Override
+	public long getP99CascadeTiles() {
+		return mCascades.getPercentile(99.0);
+	}
+
+	@Override
+	public long getMaxCascadeTiles() {
+		return mCascades.getMax();
+	}
+
+	// Measurements made while resetting may be partly lost
+	@Override
+	public void reset() {
+		for (Pass pass : mPassOrder)
+			pass.reset();
+		mGuesses.reset();
+		mCascades.reset();
+	}
+
+	// Registers in the platform MBean server as com.fbafelipe.jmines:type=SolverMetrics,name=<name>
+	public synchronized void register(String name) throws JMException {
+		if (mObjectName != null)
+			throw new IllegalStateException("Already registered as " + mObjectName);
+
+		ObjectName objectName = new ObjectName("com.fbafelipe.jmines:type=SolverMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		mObjectName = objectName;
+	}
+
+	public synchronized void unregister() throws JMException {
+		if (mObjectName == null)
+			return;
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(mObjectName))
+			server.unregisterMBean(mObjectName);
+		mObjectName = null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (PassStatistics statistics : getPassStatistics())
+			builder.append(statistics).append('\n');
+		builder.append(String.format("%d guesses, %d cascades, %.1f tiles/cascade, p99 %d, max %d",
+				getGuesses(), getCascades(), getMeanCascadeTiles(), getP99CascadeTiles(), getMaxCascadeTiles()));
+		return builder.toString();
+	}
+
+	private static class Pass {
+		public final String strategy;
+		public final Histogram nanos = new Histogram();
+		public final LongAdder hits = new LongAdder();
+		public final LongAdder steps = new LongAdder();
+		public final LongAdder guesses = new LongAdder();
+		public final LongAdder neighbourVisits = new LongAdder();
+		public final LongAdder cellsScanned = new LongAdder();
+
+		public Pass(String s) {
+			strategy = s;
+		}
+
+		public void reset() {
+			nanos.reset();
+			hits.reset();
+			steps.reset();
+			guesses.reset();
+			neighbourVisits.reset();
+			cellsScanned.reset();
+		}
+	}
+}
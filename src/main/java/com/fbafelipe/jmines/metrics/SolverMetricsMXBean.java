@@ -0,0 +1,19 @@
+package com.fbafelipe.jmines.metrics;
+
+import java.util.List;
+
+// What SolverMetrics shows through JMX
+public interface SolverMetricsMXBean {
+	// One entry for each strategy, in the order they first ran
+	List<PassStatistics> getPassStatistics();
+
+	long getGuesses();
+
+	long getCascades();
+	long getCascadeTiles();
+	double getMeanCascadeTiles();
+	long getP99CascadeTiles();
+	long getMaxCascadeTiles();
+
+	void reset();
+}
@@ -0,0 +1,47 @@
+package com.fbafelipe.jmines.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+// Reads the encodings written by BinaryWriter, advancing the buffer position
+public class BinaryReader {
+	private BinaryReader() {
+	}
+
+	public static long readVarint(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Invalid varint");
+	}
+
+	public static int readVarintInt(ByteBuffer in) {
+		long value = readVarint(in);
+		if (value < 0 || value > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid int " + value);
+		return (int) value;
+	}
+
+	public static long readSignedVarint(ByteBuffer in) {
+		long value = readVarint(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static BitSet readBits(ByteBuffer in, int length) {
+		BitSet bits = new BitSet(length);
+		int bytes = (length + 7) >>> 3;
+		for (int i = 0; i < bytes; ++i) {
+			int b = in.get() & 0xFF;
+			while (b != 0) {
+				int bit = Integer.numberOfTrailingZeros(b);
+				bits.set((i << 3) + bit);
+				b &= b - 1;
+			}
+		}
+		return bits;
+	}
+}
@@ -0,0 +1,104 @@
+package com.fbafelipe.jmines.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// A growable byte array with the encodings used by the saved games, read back with BinaryReader
+public class BinaryWriter {
+	private byte mBytes[];
+	private int mSize = 0;
+
+	public BinaryWriter() {
+		this(64);
+	}
+
+	public BinaryWriter(int capacity) {
+		mBytes = new byte[Math.max(capacity, 16)];
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (mSize + bytes > mBytes.length)
+			mBytes = Arrays.copyOf(mBytes, Math.max(mBytes.length * 2, mSize + bytes));
+	}
+
+	public void writeByte(int value) {
+		ensureCapacity(1);
+		mBytes[mSize++] = (byte) value;
+	}
+
+	// 7 bits per byte, least significant first, the high bit is set on every byte but the last
+	public void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		mBytes[mSize++] = (byte) value;
+	}
+
+	// Zigzag encoded, so small negative values are also short
+	public void writeSignedVarint(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	// Big endian, as ByteBuffer.getLong reads it
+	public void writeLong(long value) {
+		ensureCapacity(8);
+		for (int shift = 56; shift >= 0; shift -= 8)
+			mBytes[mSize++] = (byte) (value >>> shift);
+	}
+
+	public void writeBytes(byte bytes[], int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, mBytes, mSize, length);
+		mSize += length;
+	}
+
+	public void writeBytes(BinaryWriter other) {
+		writeBytes(other.mBytes, 0, other.mSize);
+	}
+
+	// The first length bytes of other
+	public void writeBytes(BinaryWriter other, int length) {
+		writeBytes(other.mBytes, 0, length);
+	}
+
+	// The first length bits, 8 per byte, bit i is the bit (i % 8) of the byte i / 8
+	public void writeBits(BitSet bits, int length) {
+		int bytes = (length + 7) >>> 3;
+		ensureCapacity(bytes);
+		Arrays.fill(mBytes, mSize, mSize + bytes, (byte) 0);
+		for (int i = bits.nextSetBit(0); i >= 0 && i < length; i = bits.nextSetBit(i + 1))
+			mBytes[mSize + (i >>> 3)] |= 1 << (i & 7);
+		mSize += bytes;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public void clear() {
+		mSize = 0;
+	}
+
+	// Forgets the bytes written after the first size ones
+	public void truncate(int size) {
+		mSize = size;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(mBytes, mSize);
+	}
+
+	// Shares the bytes, valid until the next write
+	public ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(mBytes, 0, mSize).slice();
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(mBytes, 0, mSize);
+	}
+}
@@ -0,0 +1,159 @@
+package com.fbafelipe.jmines.persistence;
+
+import com.fbafelipe.jmines.domain.MinesGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Many saved games in one file: ARCHIVE_MAGIC, then for each game its length as a varint and its GameCodec record.
+// Games are only appended. The reader maps the file in windows of up to WINDOW_SIZE bytes and hands each record
+// to the visitor as a slice of the mapping, without copying it.
+public class GameArchive {
+	private static final int ARCHIVE_MAGIC = 0x4A4D4101; // "JMA" and the format version
+
+	private static final long WINDOW_SIZE = 1L << 30;
+
+	// A varint length takes at most this many bytes
+	private static final int MAX_LENGTH_BYTES = 5;
+
+	private GameArchive() {
+	}
+
+	public static class Writer implements Closeable {
+		private static final int FLUSH_SIZE = 1 << 16;
+
+		private final FileChannel mChannel;
+		private final BinaryWriter mRecord = new BinaryWriter();
+		private final BinaryWriter mPending = new BinaryWriter(FLUSH_SIZE * 2);
+
+		// Appends to the archive, creating it when it does not exist
+		public Writer(Path path) throws IOException {
+			mChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			if (mChannel.size() == 0) {
+				ByteBuffer magic = ByteBuffer.allocate(4).putInt(ARCHIVE_MAGIC).flip();
+				mChannel.write(magic);
+			}
+			else
+				checkMagic(mChannel, path);
+
+			mChannel.position(mChannel.size());
+		}
+
+		public void write(MinesGame game, MoveLog moves) throws IOException {
+			mRecord.clear();
+			GameCodec.write(game, moves, mRecord);
+			append();
+		}
+
+		public void writeCompact(MinesGame game, MoveLog moves) throws IOException {
+			mRecord.clear();
+			GameCodec.writeCompact(game, moves, mRecord);
+			append();
+		}
+
+		private void append() throws IOException {
+			mPending.writeVarint(mRecord.size());
+			mPending.writeBytes(mRecord);
+			if (mPending.size() >= FLUSH_SIZE)
+				flush();
+		}
+
+		public void flush() throws IOException {
+			ByteBuffer bytes = mPending.asByteBuffer();
+			while (bytes.hasRemaining())
+				mChannel.write(bytes);
+			mPending.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			}
+			finally {
+				mChannel.close();
+			}
+		}
+	}
+
+	public static class Reader implements Closeable {
+		private final Path mPath;
+		private final FileChannel mChannel;
+
+		public Reader(Path path) throws IOException {
+			mPath = path;
+			mChannel = FileChannel.open(path, StandardOpenOption.READ);
+			checkMagic(mChannel, path);
+		}
+
+		// Visits the records in order until the visitor returns false, returns how many were visited.
+		// The record buffers are read-only slices of the mapping, which stays valid while they are referenced,
+		// so they may be kept or handed to other threads.
+		public long forEach(RecordVisitor visitor) throws IOException {
+			long size = mChannel.size();
+			long windowStart = 4;
+			long records = 0;
+
+			while (windowStart < size) {
+				MappedByteBuffer window = mChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+				boolean lastWindow = windowStart + window.capacity() == size;
+
+				while (window.hasRemaining()) {
+					int recordStart = window.position();
+
+					// the next record continues in the next window
+					if (!lastWindow && window.remaining() < MAX_LENGTH_BYTES)
+						break;
+
+					int length = BinaryReader.readVarintInt(window);
+					if (length > window.remaining()) {
+						if (lastWindow)
+							throw new IOException("Truncated archive: " + mPath);
+						if (recordStart == 0)
+							throw new IOException("Record too large: " + mPath);
+
+						window.position(recordStart);
+						break;
+					}
+
+					ByteBuffer record = window.slice(window.position(), length);
+					window.position(window.position() + length);
+					++records;
+
+					if (!visitor.visit(record))
+						return records;
+				}
+
+				windowStart += window.position();
+			}
+
+			return records;
+		}
+
+		@Override
+		public void close() throws IOException {
+			mChannel.close();
+		}
+	}
+
+	public interface RecordVisitor {
+		boolean visit(ByteBuffer record); // return true to continue, decode with GameCodec.read
+	}
+
+	private static void checkMagic(FileChannel channel, Path path) throws IOException {
+		ByteBuffer magic = ByteBuffer.allocate(4);
+		while (magic.hasRemaining()) {
+			if (channel.read(magic, magic.position()) < 0)
+				break;
+		}
+
+		if (magic.hasRemaining() || magic.getInt(0) != ARCHIVE_MAGIC)
+			throw new IOException("Not a game archive: " + path);
+	}
+}
@@ -0,0 +1,238 @@
+package com.fbafelipe.jmines.persistence;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.GameState;
+import com.fbafelipe.jmines.domain.IntList;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Tile;
+import com.fbafelipe.jmines.domain.TileMark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+// A game is saved as:
+//   flags byte (HAS_*), width, height and mines as varints, the GameState ordinal byte
+//   HAS_SEED: the seed, 8 bytes
+//   HAS_MINES: the mines bitmap, one bit per tile in row-major order
+//   HAS_TILES: the revealed bitmap, the blowed mine index + 1 (0 when there is none), the number of marked tiles
+//              and, for each one, the varint index delta to the previous one and the TileMark ordinal byte
+//   HAS_MOVES: the MoveLog
+// A saved file starts with FILE_MAGIC, records in a GameArchive do not.
+public class GameCodec {
+	private static final int FILE_MAGIC = 0x4A4D4701; // "JMG" and the format version
+
+	private static final int HAS_SEED = 1;
+	private static final int HAS_MINES = 2;
+	private static final int HAS_TILES = 4;
+	private static final int HAS_MOVES = 8;
+
+	private static final GameState GAME_STATES[] = GameState.values();
+
+	private GameCodec() {
+	}
+
+	// Everything: the tiles, the mines once placed, the seed and the moves when there are
+	public static void write(MinesGame game, MoveLog moves, BinaryWriter out) {
+		int flags = HAS_TILES;
+		if (game.getSeed() != null)
+			flags |= HAS_SEED;
+		if (game.isStarted())
+			flags |= HAS_MINES;
+		if (moves != null)
+			flags |= HAS_MOVES;
+
+		write(game, moves, flags, out);
+	}
+
+	// Only the seed, the moves and the outcome, the game is rebuilt by replaying the moves. The smallest form,
+	// used for the simulated games.
+	public static void writeCompact(MinesGame game, MoveLog moves, BinaryWriter out) {
+		if (game.getSeed() == null)
+			throw new IllegalArgumentException("The game has no seed");
+
+		write(game, moves, HAS_SEED | HAS_MOVES, out);
+	}
+
+	private static void write(MinesGame game, MoveLog moves, int flags, BinaryWriter out) {
+		Difficulty difficulty = game.getDifficulty();
+		int width = difficulty.width;
+		int height = difficulty.height;
+		int tiles = width * height;
+
+		out.writeByte(flags);
+		out.writeVarint(width);
+		out.writeVarint(height);
+		out.writeVarint(difficulty.mines);
+		out.writeByte(game.getGameState().ordinal());
+
+		if ((flags & HAS_SEED) != 0)
+			out.writeLong(game.getSeed());
+
+		if ((flags & HAS_MINES) != 0) {
+			BitSet mines = new BitSet(tiles);
+			for (int y = 0; y < height; ++y) {
+				for (int x = 0; x < width; ++x) {
+					if (game.getTile(x, y) == Tile.MINE)
+						mines.set(y * width + x);
+				}
+			}
+			out.writeBits(mines, tiles);
+		}
+
+		if ((flags & HAS_TILES) != 0) {
+			BitSet revealed = new BitSet(tiles);
+			IntList marks = new IntList();
+			for (int y = 0; y < height; ++y) {
+				for (int x = 0; x < width; ++x) {
+					if (game.isRevealed(x, y))
+						revealed.set(y * width + x);
+
+					TileMark mark = game.getTileMark(x, y);
+					if (mark != TileMark.NOTHING) {
+						marks.add(y * width + x);
+						marks.add(mark.ordinal());
+					}
+				}
+			}
+			out.writeBits(revealed, tiles);
+
+			Tile blowedMine = game.getBlowedMine();
+			out.writeVarint(blowedMine != null ? (long) blowedMine.y * width + blowedMine.x + 1 : 0);
+
+			out.writeVarint(marks.size() / 2);
+			int last = 0;
+			for (int i = 0; i < marks.size(); i += 2) {
+				out.writeVarint(marks.get(i) - last);
+				out.writeByte(marks.get(i + 1));
+				last = marks.get(i);
+			}
+		}
+
+		if ((flags & HAS_MOVES) != 0)
+			moves.writeTo(out);
+	}
+
+	public static GameRecord read(ByteBuffer in) {
+		int flags = in.get();
+		int width = BinaryReader.readVarintInt(in);
+		int height = BinaryReader.readVarintInt(in);
+		int mineCount = BinaryReader.readVarintInt(in);
+		Difficulty difficulty = new Difficulty(width, height, mineCount);
+		GameState gameState = GAME_STATES[in.get()];
+
+		if ((long) width * height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Game too large");
+		int tiles = width * height;
+
+		Long seed = null;
+		if ((flags & HAS_SEED) != 0)
+			seed = in.getLong();
+
+		BitSet mines = null;
+		if ((flags & HAS_MINES) != 0)
+			mines = BinaryReader.readBits(in, tiles);
+
+		BitSet revealed = null;
+		IntList marks = null;
+		Tile blowedMine = null;
+		if ((flags & HAS_TILES) != 0) {
+			revealed = BinaryReader.readBits(in, tiles);
+
+			long blowed = BinaryReader.readVarint(in);
+			if (blowed != 0)
+				blowedMine = new Tile((int) ((blowed - 1) % width), (int) ((blowed - 1) / width));
+
+			int markCount = BinaryReader.readVarintInt(in);
+			marks = new IntList(markCount * 2);
+			int index = 0;
+			for (int i = 0; i < markCount; ++i) {
+				index += BinaryReader.readVarintInt(in);
+				marks.add(index);
+				marks.add(in.get());
+			}
+		}
+
+		MoveLog moves = null;
+		if ((flags & HAS_MOVES) != 0)
+			moves = MoveLog.read(in, width);
+
+		return new GameRecord(difficulty, gameState, seed, mines, revealed, marks, blowedMine, moves);
+	}
+
+	// Resets game to the record's board and streams its moves to visitor, straight from the bytes and without
+	// decoding the rest of the record. The visitor applies them, e.g. with MoveType.apply. Returns the recorded
+	// game state. The record must have the moves, and the seed or the mines.
+	public static GameState replay(ByteBuffer in, MinesGame game, MoveLog.MoveVisitor visitor) {
+		int flags = in.get();
+		int width = BinaryReader.readVarintInt(in);
+		int height = BinaryReader.readVarintInt(in);
+		int mineCount = BinaryReader.readVarintInt(in);
+		GameState gameState = GAME_STATES[in.get()];
+
+		if ((flags & HAS_MOVES) == 0 || (flags & (HAS_SEED | HAS_MINES)) == 0)
+			throw new IllegalArgumentException("The record can not be replayed");
+		if ((long) width * height > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Game too large");
+		int tiles = width * height;
+
+		Difficulty difficulty = game.getDifficulty();
+		if (difficulty.width != width || difficulty.height != height || difficulty.mines != mineCount)
+			difficulty = new Difficulty(width, height, mineCount);
+
+		long seed = 0;
+		if ((flags & HAS_SEED) != 0)
+			seed = in.getLong();
+
+		// the mines are placed by the first open when the record has the seed
+		if ((flags & HAS_MINES) != 0)
+			game.reset(difficulty, BinaryReader.readBits(in, tiles));
+		else
+			game.reset(difficulty, seed);
+
+		if ((flags & HAS_TILES) != 0)
+			skipTiles(in, tiles);
+
+		int moves = BinaryReader.readVarintInt(in);
+		BinaryReader.readVarintInt(in); // the byte length
+		MoveLog.visit(in, moves, width, visitor);
+
+		return gameState;
+	}
+
+	private static void skipTiles(ByteBuffer in, int tiles) {
+		in.position(in.position() + ((tiles + 7) >>> 3));
+		BinaryReader.readVarint(in);
+
+		int markCount = BinaryReader.readVarintInt(in);
+		for (int i = 0; i < markCount; ++i) {
+			BinaryReader.readVarint(in);
+			in.get();
+		}
+	}
+
+	public static void save(Path path, MinesGame game, MoveLog moves) throws IOException {
+		BinaryWriter out = new BinaryWriter();
+		out.writeByte(FILE_MAGIC >>> 24);
+		out.writeByte(FILE_MAGIC >>> 16);
+		out.writeByte(FILE_MAGIC >>> 8);
+		out.writeByte(FILE_MAGIC);
+		write(game, moves, out);
+		Files.write(path, out.toByteArray());
+	}
+
+	public static GameRecord load(Path path) throws IOException {
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+		if (in.remaining() < 4 || in.getInt() != FILE_MAGIC)
+			throw new IOException("Not a saved game: " + path);
+
+		try {
+			return read(in);
+		}
+		catch (RuntimeException e) {
+			throw new IOException("Invalid saved game: " + path, e);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.fbafelipe.jmines.persistence;
+
+import com.fbafelipe.jmines.domain.BoardStorage;
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.GameState;
+import com.fbafelipe.jmines.domain.IntList;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Tile;
+import com.fbafelipe.jmines.domain.TileMark;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+// A game read by GameCodec, the parts that were not saved are null
+public class GameRecord {
+	private static final TileMark MARKS[] = TileMark.values();
+
+	public final Difficulty difficulty;
+	public final GameState gameState;
+
+	public final Long seed;
+	public final BitSet mines;
+
+	// Set together, marks holds (tile index, TileMark ordinal) pairs
+	public final BitSet revealed;
+	public final IntList marks;
+	public final Tile blowedMine;
+
+	public final MoveLog moves;
+
+	public GameRecord(Difficulty d, GameState g, Long s, BitSet m, BitSet r, IntList mk, Tile b, MoveLog mv) {
+		difficulty = d;
+		gameState = g;
+		seed = s;
+		mines = m;
+		revealed = r;
+		marks = mk;
+		blowedMine = b;
+		moves = mv;
+	}
+
+	public MinesGame toGame() {
+		return toGame(BoardStorage.HEAP);
+	}
+
+	// The saved tiles are restored directly, otherwise the moves are replayed from the seed or the mines. The
+	// storage is not saved, it is chosen when loading.
+	public MinesGame toGame(BoardStorage storage) {
+		MinesGame game;
+		if (mines != null)
+			game = new MinesGame(difficulty, mines, seed, storage);
+		else if (seed != null)
+			game = new MinesGame(difficulty, seed, storage);
+		else
+			game = new MinesGame(difficulty, new SplittableRandom(), storage);
+
+		if (revealed != null) {
+			int width = difficulty.width;
+			for (int i = revealed.nextSetBit(0); i >= 0; i = revealed.nextSetBit(i + 1))
+				game.restoreTile(i % width, i / width, true, TileMark.NOTHING);
+
+			for (int i = 0; i < marks.size(); i += 2) {
+				int index = marks.get(i);
+				game.restoreTile(index % width, index / width, revealed.get(index), MARKS[marks.get(i + 1)]);
+			}
+
+			game.restoreGameState(gameState, blowedMine);
+		}
+		else if (moves != null)
+			moves.replay(game, (x, y) -> {});
+
+		return game;
+	}
+}
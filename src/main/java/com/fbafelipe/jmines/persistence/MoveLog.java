@@ -0,0 +1,152 @@
+package com.fbafelipe.jmines.persistence;
+
+import com.fbafelipe.jmines.domain.IntList;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.MoveType;
+import com.fbafelipe.jmines.domain.TileMark;
+
+import java.nio.ByteBuffer;
+
+// The moves of a game as an append-only stream of varints. Each move is (zigzag of the tile index minus the
+// previous move's index) << 2 | MoveType ordinal, followed by the TileMark ordinal for MoveType.SET_MARK.
+// Moves are usually close to the previous one, so most take one or two bytes. Add it as a move listener to
+// record a game, the undone moves are kept until the next one is added, so they can be redone.
+public class MoveLog implements MinesGame.MoveListener {
+	private static final MoveType MOVE_TYPES[] = MoveType.values();
+	private static final TileMark MARKS[] = TileMark.values();
+
+	private final int mWidth;
+	private final BinaryWriter mBytes;
+	private int mMoves = 0;
+	private long mLastIndex = 0;
+
+	// Where each move starts in the bytes, the undone ones included
+	private final IntList mOffsets = new IntList();
+
+	public MoveLog(int width) {
+		mWidth = width;
+		mBytes = new BinaryWriter();
+	}
+
+	@Override
+	public void onMove(MoveType moveType, int x, int y, TileMark mark) {
+		add(moveType, x, y, mark);
+	}
+
+	@Override
+	public void onUndo() {
+		undo();
+	}
+
+	@Override
+	public void onRedo() {
+		redo();
+	}
+
+	public void add(MoveType moveType, int x, int y, TileMark mark) {
+		// forgets the undone moves
+		if (mMoves < mOffsets.size()) {
+			mBytes.truncate(mOffsets.get(mMoves));
+			mOffsets.removeLast(mOffsets.size() - mMoves);
+		}
+		mOffsets.add(mBytes.size());
+
+		long index = (long) y * mWidth + x;
+		long delta = index - mLastIndex;
+		mLastIndex = index;
+
+		mBytes.writeVarint((((delta << 1) ^ (delta >> 63)) << 2) | moveType.ordinal());
+		if (moveType == MoveType.SET_MARK)
+			mBytes.writeByte(mark.ordinal());
+
+		++mMoves;
+	}
+
+	// Removes the last move, it is kept until the next add so it can be redone
+	public void undo() {
+		if (mMoves == 0)
+			throw new IllegalStateException("No move to undo");
+
+		--mMoves;
+		mLastIndex -= getDelta(mOffsets.get(mMoves));
+	}
+
+	public void redo() {
+		if (mMoves == mOffsets.size())
+			throw new IllegalStateException("No move to redo");
+
+		mLastIndex += getDelta(mOffsets.get(mMoves));
+		++mMoves;
+	}
+
+	private long getDelta(int offset) {
+		ByteBuffer encoded = mBytes.asByteBuffer();
+		encoded.position(offset);
+		long delta = BinaryReader.readVarint(encoded) >>> 2;
+		return (delta >>> 1) ^ -(delta & 1);
+	}
+
+	// The moves not undone
+	public int size() {
+		return mMoves;
+	}
+
+	public int getByteSize() {
+		return mMoves < mOffsets.size() ? mOffsets.get(mMoves) : mBytes.size();
+	}
+
+	public void clear() {
+		mBytes.clear();
+		mOffsets.clear();
+		mMoves = 0;
+		mLastIndex = 0;
+	}
+
+	// The number of moves and of bytes, then the bytes
+	public void writeTo(BinaryWriter out) {
+		int bytes = getByteSize();
+		out.writeVarint(mMoves);
+		out.writeVarint(bytes);
+		out.writeBytes(mBytes, bytes);
+	}
+
+	public static MoveLog read(ByteBuffer in, int width) {
+		MoveLog log = new MoveLog(width);
+		int moves = BinaryReader.readVarintInt(in);
+		int bytes = BinaryReader.readVarintInt(in);
+
+		// added again, to know where each move starts, the encoding gives the same bytes
+		visit(in.slice(in.position(), bytes), moves, width, log::add);
+		in.position(in.position() + bytes);
+		return log;
+	}
+
+	public void visit(MoveVisitor visitor) {
+		visit(mBytes.asByteBuffer(), mMoves, mWidth, visitor);
+	}
+
+	// Decodes the moves straight from the encoded bytes, without copying them. Returns the last tile index.
+	public static long visit(ByteBuffer encoded, int moves, int width, MoveVisitor visitor) {
+		long index = 0;
+		for (int i = 0; i < moves; ++i) {
+			long value = BinaryReader.readVarint(encoded);
+			long delta = value >>> 2;
+			index += (delta >>> 1) ^ -(delta & 1);
+
+			MoveType moveType = MOVE_TYPES[(int) (value & 3)];
+			TileMark mark = moveType == MoveType.SET_MARK ? MARKS[encoded.get()] : null;
+
+			if (visitor != null)
+				visitor.visit(moveType, (int) (index % width), (int) (index / width), mark);
+		}
+		return index;
+	}
+
+	public void replay(MinesGame game, MinesGame.TileVisitor revealed) {
+		visit((moveType, x, y, mark) -> moveType.apply(game, x, y, mark, revealed));
+	}
+
+	public interface MoveVisitor {
+		void visit(MoveType moveType, int x, int y, TileMark mark);
+	}
+}
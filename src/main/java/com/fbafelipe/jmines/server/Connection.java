@@ -0,0 +1,74 @@
+package com.fbafelipe.jmines.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A client of the GameServer. The input is only touched by the I/O thread. The responses are appended by the
+// shards to a pending buffer, which the I/O thread swaps with the one it has finished writing.
+class Connection {
+	private static final int INPUT_SIZE = 1 << 16;
+	private static final int OUTPUT_SIZE = 1 << 16;
+
+	public final SocketChannel channel;
+	public SelectionKey key;
+
+	public final ByteBuffer input = ByteBuffer.allocate(INPUT_SIZE);
+
+	// Requests sent to the shards and not answered yet
+	public final AtomicInteger pendingRequests = new AtomicInteger();
+
+	// Set while reading is stopped because of too many pending requests or response bytes, I/O thread only
+	public boolean readPaused = false;
+
+	private byte mPending[] = new byte[OUTPUT_SIZE];
+	private int mPendingSize = 0;
+
+	private byte mWritingBytes[] = new byte[OUTPUT_SIZE];
+	private ByteBuffer mWriting = ByteBuffer.wrap(mWritingBytes, 0, 0);
+
+	public Connection(SocketChannel c) {
+		channel = c;
+	}
+
+	// Shard threads, the response is ASCII and sent followed by a new line
+	public synchronized void send(CharSequence response) {
+		int length = response.length() + 1;
+		if (mPendingSize + length > mPending.length)
+			mPending = Arrays.copyOf(mPending, Math.max(mPending.length * 2, mPendingSize + length));
+
+		for (int i = 0; i < response.length(); ++i)
+			mPending[mPendingSize++] = (byte) response.charAt(i);
+		mPending[mPendingSize++] = '\n';
+	}
+
+	// I/O thread, the response bytes not written to the socket yet
+	public synchronized int getPendingBytes() {
+		return mPendingSize + mWriting.remaining();
+	}
+
+	// I/O thread, writes until everything is sent or the socket is full. Returns true when there is more to write.
+	public boolean flush() throws IOException {
+		while (true) {
+			if (mWriting.hasRemaining()) {
+				channel.write(mWriting);
+				if (mWriting.hasRemaining())
+					return true;
+			}
+
+			synchronized (this) {
+				if (mPendingSize == 0)
+					return false;
+
+				byte written[] = mWritingBytes;
+				mWritingBytes = mPending;
+				mWriting = ByteBuffer.wrap(mWritingBytes, 0, mPendingSize);
+				mPending = written;
+				mPendingSize = 0;
+			}
+		}
+	}
+}
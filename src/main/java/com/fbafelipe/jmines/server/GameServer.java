@@ -0,0 +1,315 @@
+package com.fbafelipe.jmines.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Hosts many games for clients on the same machine, without the UI. The protocol is ASCII lines, each request is
+// "<tag> <command> <arguments>" and is answered by "<tag> OK <result>" or "<tag> ERR <message>", where tag is any
+// word chosen by the client:
+//   NEW <width> <height> <mines> [seed]   OK <game>
+//   OPEN <game> <x> <y>                   OK <game state> <count>, then x y value for each revealed tile, -1 is a mine
+//   CHORD <game> <x> <y>                  like OPEN, opens the neighbours of a number with as many flags around it
+//   FLAG <game> <x> <y> [mark]            OK <mark> <remaining mines>, the mark is toggled when not given
+//   HINT <game>                           OK OPEN <x> <y>, OK FLAG <x> <y> or OK NONE
+//   CLOSE <game>                          OK
+// A game is closed once it is over, and may be closed by the server once idle for too long or once the games take
+// too much memory, see setSessionLimits and setSpillDirectory. Requests may be pipelined, the ones on the same game are answered in order
+// but the ones on different games may not be, the tags tell them apart.
+//
+// A single I/O thread does the socket work with a selector. The games are split in shards, each one with its own
+// thread, and a game id tells its shard, so every request goes straight to the thread owning the game and no lock
+// is shared between the shards.
+public class GameServer implements Closeable {
+	public static final int DEFAULT_PORT = 7878;
+
+	// About 256MB of boards, a cell takes a byte
+	public static final long DEFAULT_MAX_CELLS = 1L << 28;
+	public static final long DEFAULT_MAX_IDLE_MINUTES = 30;
+
+	private static final int MAX_PENDING_REQUESTS = 4096;
+	private static final int MAX_PENDING_BYTES = 1 << 20;
+
+	private final ServerSocketChannel mServerChannel;
+	private final Selector mSelector;
+
+	private final Shard mShards[];
+	private final Thread mShardThreads[];
+	private final Thread mIoThread;
+
+	// Connections with responses to write, added by the shards
+	private final Queue<Connection> mResponsesReady = new ConcurrentLinkedQueue<>();
+
+	private volatile boolean mRunning = true;
+
+	// I/O thread only, the shard of the next new game
+	private int mNextShard = 0;
+
+	public GameServer(InetSocketAddress address, int shards) throws IOException {
+		if (shards <= 0)
+			throw new IllegalArgumentException("Invalid number of shards");
+
+		mSelector = Selector.open();
+		mServerChannel = ServerSocketChannel.open();
+		mServerChannel.bind(address);
+		mServerChannel.configureBlocking(false);
+		mServerChannel.register(mSelector, SelectionKey.OP_ACCEPT);
+
+		mShards = new Shard[shards];
+		mShardThreads = new Thread[shards];
+		for (int i = 0; i < shards; ++i) {
+			mShards[i] = new Shard(this, i, shards);
+			mShardThreads[i] = new Thread(mShards[i], "Shard-" + i);
+		}
+
+		mIoThread = new Thread(this::runIo, "GameServer");
+
+		setSessionLimits(DEFAULT_MAX_CELLS, DEFAULT_MAX_IDLE_MINUTES, TimeUnit.MINUTES);
+	}
+
+	// The cells of the games of all the shards, each shard gets its part. The least recently used games of a
+	// shard are evicted once over it, and any game idle for the given time. Only before start.
+	public void setSessionLimits(long maxCells, long maxIdle, TimeUnit unit) {
+		for (Shard shard : mShards) {
+			shard.getSessions().setMaxCells(maxCells / mShards.length);
+			shard.getSessions().setMaxIdleNanos(unit.toNanos(maxIdle));
+		}
+	}
+
+	// The evicted games are saved in directory and loaded back by the next request on them, instead of being
+	// closed. null to close them. Only before start.
+	public void setSpillDirectory(Path directory) {
+		for (Shard shard : mShards)
+			shard.getSessions().setSpillDirectory(directory);
+	}
+
+	public void start() {
+		for (Thread thread : mShardThreads)
+			thread.start();
+		mIoThread.start();
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) mServerChannel.getLocalAddress()).getPort();
+	}
+
+	@Override
+	public void close() throws IOException {
+		mRunning = false;
+		mSelector.wakeup();
+
+		for (Shard shard : mShards)
+			shard.stop();
+
+		try {
+			mIoThread.join();
+			for (Thread thread : mShardThreads)
+				thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Shard threads, after answering the requests of the connections
+	void responsesReady(Collection<Connection> connections) {
+		mResponsesReady.addAll(connections);
+		mSelector.wakeup();
+	}
+
+	private void runIo() {
+		try {
+			while (mRunning) {
+				mSelector.select();
+
+				Connection ready;
+				while ((ready = mResponsesReady.poll()) != null)
+					writeResponses(ready);
+
+				Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					if (!key.isValid())
+						continue;
+
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+
+					Connection connection = (Connection) key.attachment();
+					if (key.isReadable())
+						read(connection);
+					if (key.isValid() && key.isWritable())
+						writeResponses(connection);
+				}
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+		finally {
+			for (SelectionKey key : mSelector.keys())
+				closeQuietly(key);
+			closeQuietly(mServerChannel.keyFor(mSelector));
+
+			try {
+				mServerChannel.close();
+				mSelector.close();
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = mServerChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+
+			Connection connection = new Connection(channel);
+			connection.key = channel.register(mSelector, SelectionKey.OP_READ, connection);
+		}
+	}
+
+	private void read(Connection connection) {
+		ByteBuffer input = connection.input;
+		try {
+			if (connection.channel.read(input) < 0) {
+				closeQuietly(connection.key);
+				return;
+			}
+		}
+		catch (IOException e) {
+			closeQuietly(connection.key);
+			return;
+		}
+
+		input.flip();
+		byte bytes[] = input.array();
+		int lineStart = input.position();
+		for (int i = lineStart; i < input.limit(); ++i) {
+			if (bytes[i] != '\n')
+				continue;
+
+			int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+			if (lineEnd > lineStart)
+				dispatch(connection, new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.US_ASCII));
+			lineStart = i + 1;
+		}
+		input.position(lineStart);
+		input.compact();
+
+		// a line longer than the buffer
+		if (!input.hasRemaining()) {
+			closeQuietly(connection.key);
+			return;
+		}
+
+		// resumed by writeResponses once the shards and the client caught up
+		if (isBacklogged(connection)) {
+			connection.readPaused = true;
+			updateInterest(connection, (connection.key.interestOps() & SelectionKey.OP_WRITE) != 0);
+		}
+	}
+
+	// Reading stops when too many requests or response bytes are waiting, and resumes once both are down to half
+	private static boolean isBacklogged(Connection connection) {
+		int divisor = connection.readPaused ? 2 : 1;
+		return connection.pendingRequests.get() >= MAX_PENDING_REQUESTS / divisor
+				|| connection.getPendingBytes() >= MAX_PENDING_BYTES / divisor;
+	}
+
+	private void dispatch(Connection connection, String line) {
+		connection.pendingRequests.incrementAndGet();
+		mShards[getShard(line)].submit(connection, line);
+	}
+
+	// The shard of the game of the request, a new game goes to the next shard. An invalid request can go to
+	// any shard, it only answers the error.
+	private int getShard(String line) {
+		int commandStart = skipSpaces(line, skipWord(line, skipSpaces(line, 0)));
+		int commandEnd = skipWord(line, commandStart);
+		if (commandEnd - commandStart == 3 && line.startsWith("NEW", commandStart)) {
+			int shard = mNextShard;
+			mNextShard = (mNextShard + 1) % mShards.length;
+			return shard;
+		}
+
+		int gameStart = skipSpaces(line, commandEnd);
+		int gameEnd = skipWord(line, gameStart);
+		try {
+			return Shard.getShard(Long.parseLong(line, gameStart, gameEnd, 10), mShards.length);
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static int skipSpaces(String line, int i) {
+		while (i < line.length() && line.charAt(i) == ' ')
+			++i;
+		return i;
+	}
+
+	private static int skipWord(String line, int i) {
+		while (i < line.length() && line.charAt(i) != ' ')
+			++i;
+		return i;
+	}
+
+	private void writeResponses(Connection connection) {
+		if (!connection.key.isValid())
+			return;
+
+		boolean more;
+		try {
+			more = connection.flush();
+		}
+		catch (IOException e) {
+			closeQuietly(connection.key);
+			return;
+		}
+
+		// the shards keep answering the requests already read while the client is not reading
+		connection.readPaused = isBacklogged(connection);
+		updateInterest(connection, more);
+	}
+
+	private void updateInterest(Connection connection, boolean write) {
+		if (!connection.key.isValid())
+			return;
+
+		int ops = (connection.readPaused ? 0 : SelectionKey.OP_READ) | (write ? SelectionKey.OP_WRITE : 0);
+		connection.key.interestOps(ops);
+	}
+
+	private static void closeQuietly(SelectionKey key) {
+		if (key == null)
+			return;
+
+		key.cancel();
+		try {
+			key.channel().close();
+		}
+		catch (IOException e) {
+			// already closed
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.fbafelipe.jmines.server;
+
+import com.fbafelipe.jmines.domain.IntList;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Solver;
+
+// A game hosted by a Shard, with what the shard keeps next to it
+class ServerGame implements MinesGame.TileVisitor {
+	public final long id;
+	public final MinesGame game;
+	public Solver solver = null;
+
+	// (x, y) of the tiles revealed by the last open
+	public final IntList revealed = new IntList();
+
+	// System.nanoTime of the last request on the game, kept by the SessionStore
+	public long lastAccess;
+
+	public ServerGame(long i, MinesGame g) {
+		id = i;
+		game = g;
+	}
+
+	public long getCells() {
+		return (long) game.getWidth() * game.getHeight();
+	}
+
+	public void close() {
+		if (solver != null)
+			solver.close();
+	}
+
+	@Override
+	public void visit(int x, int y) {
+		revealed.add(x);
+		revealed.add(y);
+	}
+}
@@ -0,0 +1,158 @@
+package com.fbafelipe.jmines.server;
+
+import com.fbafelipe.jmines.persistence.GameCodec;
+import com.fbafelipe.jmines.persistence.GameRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+// The games of a Shard, only used by its thread. They are kept from the least to the most recently used, and the
+// oldest ones are evicted once the cells of all of them go over the budget or once they are idle for too long.
+// With a spill directory the evicted games are saved there and loaded back by the next request on them, as they
+// were, otherwise they are lost. The spilled files are deleted when the game is closed and when the store is.
+class SessionStore {
+	private final LinkedHashMap<Long, ServerGame> mGames = new LinkedHashMap<>(16, 0.75f, true);
+	private long mCells = 0;
+
+	private final Set<Long> mSpilled = new HashSet<>();
+
+	private long mMaxCells = Long.MAX_VALUE;
+	private long mMaxIdleNanos = Long.MAX_VALUE;
+	private Path mSpillDirectory = null;
+
+	// The most recently used game is never evicted for the budget, even when it alone is over it
+	public void setMaxCells(long maxCells) {
+		mMaxCells = maxCells;
+	}
+
+	public void setMaxIdleNanos(long maxIdleNanos) {
+		mMaxIdleNanos = maxIdleNanos;
+	}
+
+	// null to drop the evicted games
+	public void setSpillDirectory(Path directory) {
+		mSpillDirectory = directory;
+	}
+
+	// null when there is no such game, a spilled game is loaded back
+	public ServerGame get(long id) {
+		ServerGame game = mGames.get(id);
+		if (game == null) {
+			if (!mSpilled.remove(id))
+				return null;
+
+			game = load(id);
+			add(game);
+		}
+
+		game.lastAccess = System.nanoTime();
+		return game;
+	}
+
+	public void put(ServerGame game) {
+		game.lastAccess = System.nanoTime();
+		add(game);
+	}
+
+	// Returns false when there is no such game
+	public boolean remove(long id) {
+		ServerGame game = mGames.remove(id);
+		if (game != null) {
+			mCells -= game.getCells();
+			game.close();
+			return true;
+		}
+
+		if (!mSpilled.remove(id))
+			return false;
+
+		deleteSpilled(id);
+		return true;
+	}
+
+	// Evicts the games not used since now - the idle time
+	public void evictIdle(long now) {
+		Iterator<ServerGame> games = mGames.values().iterator();
+		while (games.hasNext()) {
+			ServerGame game = games.next();
+			if (now - game.lastAccess < mMaxIdleNanos)
+				break;
+
+			games.remove();
+			evict(game);
+		}
+	}
+
+	// Closes every game, also the spilled ones
+	public void clear() {
+		for (ServerGame game : mGames.values())
+			game.close();
+		mGames.clear();
+		mCells = 0;
+
+		for (long id : mSpilled)
+			deleteSpilled(id);
+		mSpilled.clear();
+	}
+
+	private void add(ServerGame game) {
+		mGames.put(game.id, game);
+		mCells += game.getCells();
+
+		Iterator<ServerGame> games = mGames.values().iterator();
+		while (mCells > mMaxCells && mGames.size() > 1) {
+			ServerGame eldest = games.next();
+			games.remove();
+			evict(eldest);
+		}
+	}
+
+	private void evict(ServerGame game) {
+		mCells -= game.getCells();
+		game.close();
+
+		if (mSpillDirectory == null)
+			return;
+
+		try {
+			GameCodec.save(getSpillPath(game.id), game.game, null);
+			mSpilled.add(game.id);
+		}
+		catch (IOException e) {
+			// the game is lost, as it would be without a spill directory
+			e.printStackTrace();
+		}
+	}
+
+	private ServerGame load(long id) {
+		Path path = getSpillPath(id);
+		try {
+			GameRecord record = GameCodec.load(path);
+			Files.delete(path);
+			return new ServerGame(id, record.toGame());
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void deleteSpilled(long id) {
+		try {
+			Files.deleteIfExists(getSpillPath(id));
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// The game ids are unique in the server, so its shards can share the directory
+	private Path getSpillPath(long id) {
+		return mSpillDirectory.resolve(Long.toUnsignedString(id) + ".jmg");
+	}
+}
@@ -0,0 +1,275 @@
+package com.fbafelipe.jmines.server;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.GameState;
+import com.fbafelipe.jmines.domain.IntList;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Solver;
+import com.fbafelipe.jmines.domain.TileMark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Owns a part of the games of the GameServer and runs every request on them, on its own thread. The games are
+// never touched by another thread, so they need no locking.
+class Shard implements Runnable {
+	private static final int MAX_BATCH = 1024;
+
+	// How often the idle games are looked for while there are no requests
+	private static final long IDLE_CHECK_MILLIS = 1000;
+
+	// Larger games could take too much memory, the server is meant for many small ones
+	private static final long MAX_TILES = 1 << 24;
+
+	private static final Request STOP = new Request(null, null);
+
+	private final GameServer mServer;
+	private final int mIndex;
+	private final int mShardCount;
+
+	private final BlockingQueue<Request> mRequests = new LinkedBlockingQueue<>();
+	private final List<Request> mBatch = new ArrayList<>();
+	private final Set<Connection> mAnswered = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private final SessionStore mSessions = new SessionStore();
+	private long mNextGame = 0;
+
+	private final StringBuilder mResponse = new StringBuilder();
+
+	public Shard(GameServer server, int index, int shardCount) {
+		mServer = server;
+		mIndex = index;
+		mShardCount = shardCount;
+	}
+
+	// The game ids of a shard are its index modulo the number of shards
+	public static int getShard(long game, int shardCount) {
+		return (int) Long.remainderUnsigned(game, shardCount);
+	}
+
+	// Only configured before the server starts
+	public SessionStore getSessions() {
+		return mSessions;
+	}
+
+	// Any thread
+	public void submit(Connection connection, String line) {
+		mRequests.add(new Request(connection, line));
+	}
+
+	public void stop() {
+		mRequests.add(STOP);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				Request first = mRequests.poll(IDLE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+				mSessions.evictIdle(System.nanoTime());
+				if (first == null)
+					continue;
+
+				mBatch.add(first);
+				mRequests.drainTo(mBatch, MAX_BATCH - 1);
+
+				for (Request request : mBatch) {
+					if (request == STOP)
+						return;
+
+					mResponse.setLength(0);
+					execute(request.line);
+					request.connection.send(mResponse);
+					request.connection.pendingRequests.decrementAndGet();
+					mAnswered.add(request.connection);
+				}
+
+				// one wake up of the I/O thread for the whole batch
+				mServer.responsesReady(mAnswered);
+				mAnswered.clear();
+				mBatch.clear();
+			}
+		}
+		catch (InterruptedException e) {
+			// stopped
+		}
+		finally {
+			mSessions.clear();
+		}
+	}
+
+	private void execute(String line) {
+		String args[] = line.trim().split(" +");
+		String tag = args[0];
+		mResponse.append(tag).append(' ');
+
+		if (args.length < 2) {
+			error("Missing command");
+			return;
+		}
+
+		try {
+			switch (args[1]) {
+				case "NEW":
+					newGame(args);
+					break;
+				case "OPEN":
+				case "CHORD":
+					open(args);
+					break;
+				case "FLAG":
+					flag(args);
+					break;
+				case "HINT":
+					hint(args);
+					break;
+				case "CLOSE":
+					close(args);
+					break;
+				default:
+					error("Unknown command " + args[1]);
+					break;
+			}
+		}
+		catch (RuntimeException e) {
+			// the invalid requests, NumberFormatException is an IllegalArgumentException too
+			mResponse.setLength(tag.length() + 1);
+			error(e instanceof IllegalArgumentException ? e.getMessage() : e.toString());
+		}
+	}
+
+	private void error(String message) {
+		mResponse.append("ERR ").append(message);
+	}
+
+	// NEW <width> <height> <mines> [seed]
+	private void newGame(String args[]) {
+		checkArgs(args, 5, 6);
+		int width = Integer.parseInt(args[2]);
+		int height = Integer.parseInt(args[3]);
+		int mines = Integer.parseInt(args[4]);
+		if ((long) width * height > MAX_TILES)
+			throw new IllegalArgumentException("Game too large");
+
+		Difficulty difficulty = new Difficulty(width, height, mines);
+		MinesGame game = args.length == 6 ? new MinesGame(difficulty, Long.parseLong(args[5])) : new MinesGame(difficulty);
+
+		long id = mNextGame++ * mShardCount + mIndex;
+		mSessions.put(new ServerGame(id, game));
+		mResponse.append("OK ").append(id);
+	}
+
+	// OPEN|CHORD <game> <x> <y>, answered with the state, the number of revealed tiles and each one as x y value,
+	// the value of a mine is -1. The game is closed once it is over.
+	private void open(String args[]) {
+		checkArgs(args, 5, 5);
+		long id = parseGame(args);
+		ServerGame serverGame = getGame(id);
+		MinesGame game = serverGame.game;
+		int x = parseCoordinate(args[3], game.getWidth());
+		int y = parseCoordinate(args[4], game.getHeight());
+
+		IntList revealed = serverGame.revealed;
+		revealed.clear();
+		if (args[1].equals("OPEN"))
+			game.openTile(x, y, serverGame);
+		else
+			game.openNeighbours(x, y, serverGame);
+
+		mResponse.append("OK ").append(game.getGameState().name()).append(' ').append(revealed.size() / 2);
+		for (int i = 0; i < revealed.size(); i += 2) {
+			int tileX = revealed.get(i);
+			int tileY = revealed.get(i + 1);
+			mResponse.append(' ').append(tileX).append(' ').append(tileY).append(' ').append(game.getTile(tileX, tileY));
+		}
+
+		if (game.getGameState() != GameState.IN_PROGRESS)
+			mSessions.remove(id);
+	}
+
+	// FLAG <game> <x> <y> [mark], toggles the mark when it is not given. Answered with the mark and the
+	// remaining mines.
+	private void flag(String args[]) {
+		checkArgs(args, 5, 6);
+		MinesGame game = getGame(parseGame(args)).game;
+		int x = parseCoordinate(args[3], game.getWidth());
+		int y = parseCoordinate(args[4], game.getHeight());
+
+		if (game.isRevealed(x, y))
+			throw new IllegalArgumentException("Tile already revealed");
+
+		if (args.length == 6) {
+			TileMark mark = TileMark.valueOf(args[5]);
+			if (mark.ordinal() > TileMark.QUESTION_MARK.ordinal())
+				throw new IllegalArgumentException("Invalid mark " + mark);
+			game.flagTile(x, y, mark);
+		}
+		else
+			game.flagTile(x, y);
+
+		mResponse.append("OK ").append(game.getTileMark(x, y).name()).append(' ').append(game.getRemainingMines());
+	}
+
+	// CLOSE <game>
+	private void close(String args[]) {
+		checkArgs(args, 3, 3);
+		if (!mSessions.remove(parseGame(args)))
+			throw new IllegalArgumentException("Unknown game");
+		mResponse.append("OK");
+	}
+
+	// HINT <game>, answered with OPEN x y, FLAG x y or NONE
+	private void hint(String args[]) {
+		checkArgs(args, 3, 3);
+		ServerGame serverGame = getGame(parseGame(args));
+		if (serverGame.solver == null)
+			serverGame.solver = new Solver(serverGame.game);
+
+		Solver.Step step = serverGame.solver.hint();
+		if (step == null)
+			mResponse.append("OK NONE");
+		else
+			mResponse.append("OK ").append(step.stepType.name()).append(' ').append(step.x).append(' ').append(step.y);
+	}
+
+	private static void checkArgs(String args[], int min, int max) {
+		if (args.length < min || args.length > max)
+			throw new IllegalArgumentException("Wrong number of arguments");
+	}
+
+	private static long parseGame(String args[]) {
+		if (args.length < 3)
+			throw new IllegalArgumentException("Missing game");
+		return Long.parseLong(args[2]);
+	}
+
+	private static int parseCoordinate(String arg, int size) {
+		int coordinate = Integer.parseInt(arg);
+		if (coordinate < 0 || coordinate >= size)
+			throw new IllegalArgumentException("Invalid coordinate " + coordinate);
+		return coordinate;
+	}
+
+	private ServerGame getGame(long id) {
+		ServerGame game = mSessions.get(id);
+		if (game == null)
+			throw new IllegalArgumentException("Unknown game");
+		return game;
+	}
+
+	private static class Request {
+		public final Connection connection;
+		public final String line;
+
+		public Request(Connection c, String l) {
+			connection = c;
+			line = l;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.fbafelipe.jmines.simulation;
+
+public class ReplayResult {
+	public final long games;
+	public final long moves;
+	public final long mismatches;
+	public final long errors;
+	public final long wallNanos;
+
+	// The numbers (from 0, in archive order) of up to 100 of the games that did not end as recorded or could not
+	// be replayed, sorted
+	public final long mismatchedGames[];
+
+	public ReplayResult(long games, long moves, long mismatches, long errors, long wallNanos, long mismatchedGames[]) {
+		this.games = games;
+		this.moves = moves;
+		this.mismatches = mismatches;
+		this.errors = errors;
+		this.wallNanos = wallNanos;
+		this.mismatchedGames = mismatchedGames;
+	}
+
+	public boolean isSuccessful() {
+		return mismatches == 0 && errors == 0;
+	}
+
+	public double getGamesPerSecond() {
+		return wallNanos == 0 ? 0.0 : games * 1e9 / wallNanos;
+	}
+
+	public double getMovesPerSecond() {
+		return wallNanos == 0 ? 0.0 : moves * 1e9 / wallNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d games, %d moves, %d mismatches, %d errors, %.0f games/s, %.0f moves/s",
+				games, moves, mismatches, errors, getGamesPerSecond(), getMovesPerSecond());
+	}
+}
@@ -0,0 +1,200 @@
+package com.fbafelipe.jmines.simulation;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.GameState;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.MoveType;
+import com.fbafelipe.jmines.domain.TileMark;
+import com.fbafelipe.jmines.persistence.GameArchive;
+import com.fbafelipe.jmines.persistence.GameCodec;
+import com.fbafelipe.jmines.persistence.MoveLog;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Replays the games of a GameArchive headlessly and checks that each one ends in its recorded GameState, used to
+// check that changes to the game did not change the outcome of the recorded games. The archive is read on the
+// calling thread and the records are handed, without copying, in batches to the workers. Each worker replays
+// every game on the same MinesGame, reset for each one.
+public class ReplayRunner {
+	private static final int GAMES_PER_BATCH = 256;
+	private static final int BATCHES_PER_WORKER = 4;
+
+	// The numbers of the mismatched games kept in the result
+	private static final int MAX_MISMATCHED_GAMES = 100;
+
+	private static final MinesGame.TileVisitor NO_REVEAL_LISTENER = (x, y) -> {};
+
+	// Tells a worker that there are no more batches
+	private static final Batch END = new Batch(0);
+
+	private int mWorkers;
+
+	public ReplayRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public ReplayRunner(int workers) {
+		if (workers <= 0)
+			throw new IllegalArgumentException("Invalid number of workers");
+
+		mWorkers = workers;
+	}
+
+	public ReplayResult run(Path archive) throws IOException {
+		Statistics statistics = new Statistics();
+		BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(mWorkers * BATCHES_PER_WORKER);
+
+		Worker workers[] = new Worker[mWorkers];
+		for (int i = 0; i < workers.length; ++i) {
+			workers[i] = new Worker(batches, statistics);
+			workers[i].setName("Replay-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		long start = System.nanoTime();
+		long games;
+		boolean finished = false;
+		try {
+			try (GameArchive.Reader reader = new GameArchive.Reader(archive)) {
+				Batch batch[] = {new Batch(0)};
+				games = reader.forEach(record -> {
+					if (batch[0].size == GAMES_PER_BATCH) {
+						put(batches, batch[0]);
+						batch[0] = new Batch(batch[0].firstGame + GAMES_PER_BATCH);
+					}
+					batch[0].records[batch[0].size++] = record;
+					return true;
+				});
+				put(batches, batch[0]);
+			}
+
+			for (int i = 0; i < workers.length; ++i)
+				put(batches, END);
+			for (Worker worker : workers)
+				worker.join();
+			finished = true;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		finally {
+			// failed or interrupted, putting END could block, so the workers are interrupted instead
+			if (!finished) {
+				batches.clear();
+				for (Worker worker : workers)
+					worker.interrupt();
+			}
+		}
+		long wallNanos = System.nanoTime() - start;
+
+		return new ReplayResult(
+				games,
+				statistics.moves.sum(),
+				statistics.mismatches.sum(),
+				statistics.errors.sum(),
+				wallNanos,
+				statistics.getMismatchedGames()
+		);
+	}
+
+	private static void put(BlockingQueue<Batch> batches, Batch batch) {
+		try {
+			batches.put(batch);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while replaying", e);
+		}
+	}
+
+	private static class Batch {
+		public final long firstGame;
+		public final ByteBuffer records[] = new ByteBuffer[GAMES_PER_BATCH];
+		public int size = 0;
+
+		public Batch(long first) {
+			firstGame = first;
+		}
+	}
+
+	private static class Statistics {
+		public final LongAdder moves = new LongAdder();
+		public final LongAdder mismatches = new LongAdder();
+		public final LongAdder errors = new LongAdder();
+
+		private long mMismatchedGames[] = new long[MAX_MISMATCHED_GAMES];
+		private int mMismatchedCount = 0;
+
+		// error is set when the record could not be replayed
+		public synchronized void addFailure(long game, boolean error) {
+			(error ? errors : mismatches).increment();
+			if (mMismatchedCount < mMismatchedGames.length)
+				mMismatchedGames[mMismatchedCount++] = game;
+		}
+
+		public synchronized long[] getMismatchedGames() {
+			long games[] = Arrays.copyOf(mMismatchedGames, mMismatchedCount);
+			Arrays.sort(games);
+			return games;
+		}
+	}
+
+	private static class Worker extends Thread implements MoveLog.MoveVisitor {
+		private final BlockingQueue<Batch> mBatches;
+		private final Statistics mStatistics;
+
+		// Reset for every game, the first game sets its size
+		private final MinesGame mGame = new MinesGame(Difficulty.EASY, 0);
+		private long mMoves;
+
+		public Worker(BlockingQueue<Batch> batches, Statistics statistics) {
+			mBatches = batches;
+			mStatistics = statistics;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Batch batch;
+				while ((batch = mBatches.take()) != END) {
+					mMoves = 0;
+					for (int i = 0; i < batch.size; ++i)
+						replay(batch.records[i], batch.firstGame + i);
+					mStatistics.moves.add(mMoves);
+				}
+			}
+			catch (InterruptedException e) {
+				// the run was abandoned
+			}
+		}
+
+		private void replay(ByteBuffer record, long game) {
+			GameState recorded;
+			try {
+				recorded = GameCodec.replay(record, mGame, this);
+			}
+			catch (RuntimeException e) {
+				mStatistics.addFailure(game, true);
+				return;
+			}
+
+			if (mGame.getGameState() != recorded)
+				mStatistics.addFailure(game, false);
+		}
+
+		@Override
+		public void visit(MoveType moveType, int x, int y, TileMark mark) {
+			moveType.apply(mGame, x, y, mark, NO_REVEAL_LISTENER);
+			++mMoves;
+		}
+	}
+}
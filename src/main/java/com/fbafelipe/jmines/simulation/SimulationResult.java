@@ -0,0 +1,39 @@
+package com.fbafelipe.jmines.simulation;
+
+public class SimulationResult {
+	public final long games;
+	public final long wins;
+	public final long losses;
+	public final long steps;
+	public final long guesses;
+	public final long totalNanos;
+	public final long wallNanos;
+
+	public SimulationResult(long games, long wins, long losses, long steps, long guesses, long totalNanos, long wallNanos) {
+		this.games = games;
+		this.wins = wins;
+		this.losses = losses;
+		this.steps = steps;
+		this.guesses = guesses;
+		this.totalNanos = totalNanos;
+		this.wallNanos = wallNanos;
+	}
+
+	public double getWinRate() {
+		return games == 0 ? 0.0 : (double) wins / games;
+	}
+
+	public double getNanosPerGame() {
+		return games == 0 ? 0.0 : (double) totalNanos / games;
+	}
+
+	public double getGamesPerSecond() {
+		return wallNanos == 0 ? 0.0 : games * 1e9 / wallNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d games, %d wins, %d losses (%.2f%% win rate), %d steps, %d guesses, %.1f us/game, %.0f games/s",
+				games, wins, losses, getWinRate() * 100.0, steps, guesses, getNanosPerGame() / 1000.0, getGamesPerSecond());
+	}
+}
@@ -0,0 +1,152 @@
+package com.fbafelipe.jmines.simulation;
+
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.GameState;
+import com.fbafelipe.jmines.domain.MetricsRecorder;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Solver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Plays seeded games with the Solver in parallel, game i always uses the same seed for the same base seed
+public class SimulationRunner {
+	private static final int GAMES_PER_TASK = 64;
+
+	private static final MinesGame.TileVisitor NO_REVEAL_LISTENER = (x, y) -> {};
+
+	private ForkJoinPool mPool;
+	private MetricsRecorder mMetricsRecorder = null;
+
+	public SimulationRunner() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public SimulationRunner(ForkJoinPool pool) {
+		mPool = pool;
+	}
+
+	// Set on the games and solvers of the next runs, it must be thread safe like SolverMetrics. null to measure nothing.
+	public void setMetricsRecorder(MetricsRecorder recorder) {
+		mMetricsRecorder = recorder;
+	}
+
+	public SimulationResult run(Difficulty difficulty, int games, long seed) {
+		if (games < 0)
+			throw new IllegalArgumentException("Invalid number of games");
+
+		Statistics statistics = new Statistics();
+
+		long start = System.nanoTime();
+		mPool.invoke(new SimulationTask(difficulty, seed, 0, games, statistics, mMetricsRecorder));
+		long wallNanos = System.nanoTime() - start;
+
+		return new SimulationResult(
+				games,
+				statistics.wins.sum(),
+				statistics.losses.sum(),
+				statistics.steps.sum(),
+				statistics.guesses.sum(),
+				statistics.nanos.sum(),
+				wallNanos
+		);
+	}
+
+	public static long gameSeed(long seed, int game) {
+		long z = seed + game * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static void playGame(Difficulty difficulty, long seed, Statistics statistics, MetricsRecorder recorder) {
+		long start = System.nanoTime();
+
+		MinesGame game = new MinesGame(difficulty, seed);
+		Player player = new Player(game);
+		try (Solver solver = new Solver(game)) {
+			game.setMetricsRecorder(recorder);
+			solver.setMetricsRecorder(recorder);
+			solver.autoSolve(player);
+		}
+
+		statistics.nanos.add(System.nanoTime() - start);
+		statistics.steps.add(player.steps);
+		statistics.guesses.add(player.guesses);
+
+		if (game.getGameState() == GameState.OVER_VICTORY)
+			statistics.wins.increment();
+		else if (game.getGameState() == GameState.OVER_DEFEAT)
+			statistics.losses.increment();
+	}
+
+	// Executes the steps of the solver, counting them
+	private static class Player implements Solver.AutoSolveListener {
+		private final MinesGame mGame;
+		public long steps = 0;
+		public long guesses = 0;
+
+		public Player(MinesGame game) {
+			mGame = game;
+		}
+
+		@Override
+		public boolean onStep(Solver.Step step) {
+			step.execute(mGame, NO_REVEAL_LISTENER);
+			++steps;
+			return true;
+		}
+
+		@Override
+		public void onGuess(Solver.Step step) {
+			// the first open is always safe, it is not counted as a guess
+			if (steps > 0)
+				++guesses;
+		}
+	}
+
+	private static class Statistics {
+		public final LongAdder wins = new LongAdder();
+		public final LongAdder losses = new LongAdder();
+		public final LongAdder steps = new LongAdder();
+		public final LongAdder guesses = new LongAdder();
+		public final LongAdder nanos = new LongAdder();
+	}
+
+	private static class SimulationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Difficulty mDifficulty;
+		private final long mSeed;
+		private final int mBegin;
+		private final int mEnd;
+		private final Statistics mStatistics;
+		private final MetricsRecorder mMetricsRecorder;
+
+		public SimulationTask(Difficulty difficulty, long seed, int begin, int end, Statistics statistics,
+				MetricsRecorder recorder) {
+			mDifficulty = difficulty;
+			mSeed = seed;
+			mBegin = begin;
+			mEnd = end;
+			mStatistics = statistics;
+			mMetricsRecorder = recorder;
+		}
+
+		@Override
+		protected void compute() {
+			if (mEnd - mBegin <= GAMES_PER_TASK) {
+				for (int i = mBegin; i < mEnd; ++i)
+					playGame(mDifficulty, gameSeed(mSeed, i), mStatistics, mMetricsRecorder);
+				return;
+			}
+
+			int middle = (mBegin + mEnd) >>> 1;
+			invokeAll(
+					new SimulationTask(mDifficulty, mSeed, mBegin, middle, mStatistics, mMetricsRecorder),
+					new SimulationTask(mDifficulty, mSeed, middle, mEnd, mStatistics, mMetricsRecorder)
+			);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.fbafelipe.jmines.ui;
+
+public enum AutoSolveSpeed {
+	SLOW("Slow", 10),
+	NORMAL("Normal", 40),
+	FAST("Fast", 400),
+	INSTANT("Instant", 0); // every step the solver has already found is applied at each frame
+
+	public final String label;
+	public final int stepsPerSecond;
+
+	AutoSolveSpeed(String l, int s) {
+		label = l;
+		stepsPerSecond = s;
+	}
+}
@@ -0,0 +1,358 @@
+package com.fbafelipe.jmines.ui;
+
+import com.fbafelipe.jmines.domain.Tile;
+import com.fbafelipe.jmines.domain.TileMark;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
+
+// Paints the whole board in a single component. It keeps what each tile shows and only the changed tiles are repainted.
+// Inside a JScrollPane only the tiles in the viewport are painted, ctrl + mouse wheel zooms around the cursor.
+public class BoardPanel extends JComponent implements Scrollable {
+	private static final long serialVersionUID = 1L;
+
+	private static final Color HINT_BG_COLOR = Color.ORANGE;
+	private static final Color BLOWED_MINE_BG_COLOR = Color.RED;
+
+	private static final int TILE_PREFERRED_SIZE = 50;
+	private static final int MIN_TILE_SIZE = 8;
+	private static final int MAX_TILE_SIZE = 128;
+	private static final float ZOOM_FACTOR = 1.25f;
+
+	// Fraction of the screen the viewport may take when the board is packed
+	private static final float MAX_SCREEN_FRACTION = 0.85f;
+
+	// A tile is either revealed, holding its value (or REVEALED_MINE), or CONCEALED ored with the TileMark ordinal
+	private static final byte REVEALED_MINE = TileSprites.REVEALED_MINE;
+	private static final byte CONCEALED = TileSprites.CONCEALED;
+
+	private Mvp.Presenter mPresenter;
+
+	private int mBoardWidth;
+	private int mBoardHeight;
+	private byte mTiles[];
+
+	private Tile mHint = new Tile(-1, -1);
+	private Tile mBlowedTile = new Tile(-1, -1);
+
+	private int mTileSize = TILE_PREFERRED_SIZE;
+
+	private Image mFlagImage;
+	private Image mWrongFlagImage;
+	private Image mMineImage;
+
+	// Rebuilt when the tile size changes
+	private TileSprites mSprites;
+
+	public BoardPanel(Image flagImage, Image wrongFlagImage, Image mineImage) {
+		mFlagImage = flagImage;
+		mWrongFlagImage = wrongFlagImage;
+		mMineImage = mineImage;
+
+		setOpaque(true);
+		setBackground(UIManager.getColor("Panel.background"));
+		MouseAdapter mouseAdapter = new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent mouseEvent) {
+				onMouseClicked(mouseEvent);
+			}
+
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent mouseWheelEvent) {
+				onMouseWheelMoved(mouseWheelEvent);
+			}
+		};
+		addMouseListener(mouseAdapter);
+		addMouseWheelListener(mouseAdapter);
+	}
+
+	public void setPresenter(Mvp.Presenter presenter) {
+		mPresenter = presenter;
+	}
+
+	public void setBoardSize(int width, int height) {
+		mBoardWidth = width;
+		mBoardHeight = height;
+		mTiles = new byte[width * height];
+		mHint = new Tile(-1, -1);
+		mBlowedTile = new Tile(-1, -1);
+		concealAll();
+
+		mTileSize = getFittingTileSize();
+		updatePreferredSize();
+	}
+
+	// The preferred size, or smaller if the board would not fit the screen
+	private int getFittingTileSize() {
+		if (GraphicsEnvironment.isHeadless())
+			return TILE_PREFERRED_SIZE;
+
+		Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+		int fitting = (int) Math.min(screen.width * MAX_SCREEN_FRACTION / mBoardWidth, screen.height * MAX_SCREEN_FRACTION / mBoardHeight);
+		return Math.max(MIN_TILE_SIZE, Math.min(TILE_PREFERRED_SIZE, fitting));
+	}
+
+	private void updatePreferredSize() {
+		setPreferredSize(new Dimension(mBoardWidth * mTileSize, mBoardHeight * mTileSize));
+		revalidate();
+		repaint();
+	}
+
+	public void zoomIn() {
+		zoomAt(Math.round(mTileSize * ZOOM_FACTOR), getVisibleCenter());
+	}
+
+	public void zoomOut() {
+		zoomAt(Math.round(mTileSize / ZOOM_FACTOR), getVisibleCenter());
+	}
+
+	private Point getVisibleCenter() {
+		Rectangle visible = getVisibleRect();
+		return new Point(visible.x + visible.width / 2, visible.y + visible.height / 2);
+	}
+
+	// Changes the tile size keeping the board position under anchor (in component coordinates) in the same place
+	private void zoomAt(int tileSize, Point anchor) {
+		tileSize = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, tileSize));
+		if (tileSize == mTileSize || mTiles == null)
+			return;
+
+		double boardX = (double) (anchor.x - getOffsetX()) / mTileSize;
+		double boardY = (double) (anchor.y - getOffsetY()) / mTileSize;
+
+		JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+		Point viewPosition = viewport != null ? viewport.getViewPosition() : new Point();
+
+		mTileSize = tileSize;
+		updatePreferredSize();
+
+		if (viewport != null) {
+			// The size the viewport layout will give, set now so the position below is not clamped to the old size
+			Dimension extent = viewport.getExtentSize();
+			setSize(Math.max(extent.width, mBoardWidth * mTileSize), Math.max(extent.height, mBoardHeight * mTileSize));
+
+			int x = (int) Math.round(boardX * mTileSize) + getOffsetX() - (anchor.x - viewPosition.x);
+			int y = (int) Math.round(boardY * mTileSize) + getOffsetY() - (anchor.y - viewPosition.y);
+			x = Math.max(0, Math.min(getWidth() - extent.width, x));
+			y = Math.max(0, Math.min(getHeight() - extent.height, y));
+			viewport.setViewPosition(new Point(x, y));
+		}
+	}
+
+	public int getBoardWidth() {
+		return mBoardWidth;
+	}
+
+	public int getBoardHeight() {
+		return mBoardHeight;
+	}
+
+	public void concealAll() {
+		Arrays.fill(mTiles, (byte) (CONCEALED | TileMark.NOTHING.ordinal()));
+		repaint();
+	}
+
+	public void revealTile(int x, int y, int value) {
+		mTiles[y * mBoardWidth + x] = value == Tile.MINE ? REVEALED_MINE : (byte) value;
+		repaintTile(x, y);
+	}
+
+	// A single repaint of the rectangle around all the tiles
+	public void revealTiles(int xs[], int ys[], int values[], int count) {
+		if (count == 0)
+			return;
+
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+
+		for (int i = 0; i < count; ++i) {
+			int x = xs[i];
+			int y = ys[i];
+			mTiles[y * mBoardWidth + x] = values[i] == Tile.MINE ? REVEALED_MINE : (byte) values[i];
+
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+
+		repaint(getOffsetX() + minX * mTileSize, getOffsetY() + minY * mTileSize,
+				(maxX - minX + 1) * mTileSize, (maxY - minY + 1) * mTileSize);
+	}
+
+	public void concealTile(int x, int y, TileMark tileMark) {
+		mTiles[y * mBoardWidth + x] = (byte) (CONCEALED | tileMark.ordinal());
+		repaintTile(x, y);
+	}
+
+	public void setBlowedTile(int x, int y) {
+		mBlowedTile = new Tile(x, y);
+		repaintTile(x, y);
+	}
+
+	public void clearBlowedTile() {
+		if (mBlowedTile.x >= 0 && mBlowedTile.y >= 0) {
+			repaintTile(mBlowedTile.x, mBlowedTile.y);
+			mBlowedTile = new Tile(-1, -1);
+		}
+	}
+
+	public void setHintTile(int x, int y) {
+		clearHintTile();
+		mHint = new Tile(x, y);
+		repaintTile(x, y);
+		scrollRectToVisible(new Rectangle(getOffsetX() + x * mTileSize, getOffsetY() + y * mTileSize, mTileSize, mTileSize));
+	}
+
+	public void clearHintTile() {
+		if (mHint.x >= 0 && mHint.y >= 0) {
+			repaintTile(mHint.x, mHint.y);
+			mHint = new Tile(-1, -1);
+		}
+	}
+
+	private void repaintTile(int x, int y) {
+		repaint(getOffsetX() + x * mTileSize, getOffsetY() + y * mTileSize, mTileSize, mTileSize);
+	}
+
+	// The board is centered when the viewport is larger than it
+	private int getOffsetX() {
+		return Math.max(0, (getWidth() - mTileSize * mBoardWidth) / 2);
+	}
+
+	private int getOffsetY() {
+		return Math.max(0, (getHeight() - mTileSize * mBoardHeight) / 2);
+	}
+
+	private void onMouseClicked(MouseEvent mouseEvent) {
+		if (mPresenter == null || mTiles == null)
+			return;
+
+		int x = Math.floorDiv(mouseEvent.getX() - getOffsetX(), mTileSize);
+		int y = Math.floorDiv(mouseEvent.getY() - getOffsetY(), mTileSize);
+		if (x < 0 || y < 0 || x >= mBoardWidth || y >= mBoardHeight)
+			return;
+
+		if (isRevealed(mTiles[y * mBoardWidth + x])) {
+			if (isMiddleMouseButton(mouseEvent))
+				mPresenter.onClickAutoOpenTile(x, y);
+		}
+		else if (SwingUtilities.isLeftMouseButton(mouseEvent))
+			mPresenter.onClickTile(x, y);
+		else if (SwingUtilities.isRightMouseButton(mouseEvent))
+			mPresenter.onClickToggleMarkTile(x, y);
+	}
+
+	// Without ctrl the event goes to the parent, so the scroll pane still scrolls
+	private void onMouseWheelMoved(MouseWheelEvent mouseWheelEvent) {
+		if (mouseWheelEvent.isControlDown()) {
+			float zoom = (float) Math.pow(ZOOM_FACTOR, -mouseWheelEvent.getPreciseWheelRotation());
+			int tileSize = Math.round(mTileSize * zoom);
+			if (tileSize == mTileSize)
+				tileSize += zoom > 1.0f ? 1 : -1;
+
+			zoomAt(tileSize, mouseWheelEvent.getPoint());
+		}
+		else if (getParent() != null)
+			getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, mouseWheelEvent, getParent()));
+	}
+
+	private static boolean isMiddleMouseButton(MouseEvent mouseEvent) {
+		return SwingUtilities.isMiddleMouseButton(mouseEvent) ||
+				(SwingUtilities.isLeftMouseButton(mouseEvent) && SwingUtilities.isRightMouseButton(mouseEvent));
+	}
+
+	private static boolean isRevealed(byte tile) {
+		return (tile & CONCEALED) == 0;
+	}
+
+	@Override
+	protected void paintComponent(Graphics graphics) {
+		graphics.setColor(getBackground());
+		Rectangle clip = graphics.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		graphics.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		if (mTiles == null || mBoardWidth == 0 || mBoardHeight == 0)
+			return;
+
+		Graphics2D g = (Graphics2D) graphics;
+
+		int offsetX = getOffsetX();
+		int offsetY = getOffsetY();
+		TileSprites sprites = getSprites();
+
+		// Only the tiles inside the clip
+		int beginX = Math.max(0, Math.floorDiv(clip.x - offsetX, mTileSize));
+		int beginY = Math.max(0, Math.floorDiv(clip.y - offsetY, mTileSize));
+		int endX = Math.min(mBoardWidth, Math.floorDiv(clip.x + clip.width - offsetX - 1, mTileSize) + 1);
+		int endY = Math.min(mBoardHeight, Math.floorDiv(clip.y + clip.height - offsetY - 1, mTileSize) + 1);
+
+		for (int y = beginY; y < endY; ++y) {
+			for (int x = beginX; x < endX; ++x)
+				sprites.draw(g, mTiles[y * mBoardWidth + x], offsetX + x * mTileSize, offsetY + y * mTileSize);
+		}
+
+		// The highlighted tiles are the only ones not in the sprites
+		paintHighlight(g, sprites, mHint, HINT_BG_COLOR, clip);
+		paintHighlight(g, sprites, mBlowedTile, BLOWED_MINE_BG_COLOR, clip);
+	}
+
+	private void paintHighlight(Graphics2D g, TileSprites sprites, Tile tile, Color bgColor, Rectangle clip) {
+		if (tile.x < 0 || tile.y < 0)
+			return;
+
+		int px = getOffsetX() + tile.x * mTileSize;
+		int py = getOffsetY() + tile.y * mTileSize;
+		if (clip.intersects(px, py, mTileSize, mTileSize))
+			sprites.paint(g, mTiles[tile.y * mBoardWidth + tile.x], bgColor, px, py);
+	}
+
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		Dimension preferred = getPreferredSize();
+		if (GraphicsEnvironment.isHeadless())
+			return preferred;
+
+		Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+		return new Dimension(Math.min(preferred.width, (int) (screen.width * MAX_SCREEN_FRACTION)),
+				Math.min(preferred.height, (int) (screen.height * MAX_SCREEN_FRACTION)));
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return mTileSize;
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+		int extent = orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+		return Math.max(mTileSize, extent - mTileSize);
+	}
+
+	// Stretched to the viewport when it is larger than the board, which is then centered
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+	}
+
+	private TileSprites getSprites() {
+		if (mSprites == null || !mSprites.hasSize(mTileSize, mTileSize)) {
+			mSprites = new TileSprites(mTileSize, mTileSize, getGraphicsConfiguration(), getBackground(),
+					mFlagImage, mWrongFlagImage, mMineImage);
+		}
+		return mSprites;
+	}
+}
@@ -12,9 +12,12 @@ public class Mvp {
 		void onClickTile(int x, int y);
 		void onClickToggleMarkTile(int x, int y);
 		void onClickAutoOpenTile(int x, int y);
+		void onClickUndo();
+		void onClickRedo();
 
 		void onClickHint();
 		void onClickAutoSolve();
+		void onSelectAutoSolveSpeed(AutoSolveSpeed speed);
 	}
 
 	public interface View {
@@ -23,9 +26,11 @@ public class Mvp {
 		void concealAll();
 		void setSize(int width, int height);
 		void revealTile(int x, int y, int value);
+		void revealTiles(int xs[], int ys[], int values[], int count);
 		void concealTile(int x, int y, TileMark tileMark);
 
 		void setBlowedTile(int x, int y);
+		void clearBlowedTile();
 
 		void setHintTile(int x, int y);
 		void clearHintTile();
@@ -4,17 +4,48 @@ import com.fbafelipe.jmines.domain.*;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Presenter implements Mvp.Presenter {
+	private static final int AUTO_SOLVE_FRAME_DELAY = 16;
+	private static final int AUTO_SOLVE_QUEUE_CAPACITY = 4096;
+
+	private static final MinesGame.TileVisitor NO_REVEAL_LISTENER = (x, y) -> {};
+
 	private Mvp.View mView;
 
 	private MinesGame mGame;
+	private Solver mSolver;
+
+	private AutoSolve mAutoSolve;
+	private AutoSolveSpeed mAutoSolveSpeed = AutoSolveSpeed.NORMAL;
 
-	private AutoSolveThread mAutoSolveThread;
+	private final RevealBatch mRevealBatch = new RevealBatch();
+
+	// Shown by the last defeat, restored when it is undone
+	private List<Tile> mWrongFlags = Collections.emptyList();
+
+	// The next hint is computed on a snapshot after every move, while the player thinks
+	private final ExecutorService mHintExecutor = Executors.newSingleThreadExecutor((runnable) -> {
+		Thread thread = new Thread(runnable, "Hint");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Future<?> mHintTask;
+	private PrecomputedHint mPrecomputedHint;
 
 	public Presenter() {
 		mGame = new MinesGame(Difficulty.HARD);
+		mGame.setJournalEnabled(true);
+		mSolver = new Solver(mGame);
 	}
 
 	@Override
@@ -26,17 +57,21 @@ public class Presenter implements Mvp.Presenter {
 
 	@Override
 	public void onClickNewGame(Difficulty difficulty) {
-		if (mAutoSolveThread != null) {
-			mAutoSolveThread.stopSolving(() -> newGame(difficulty));
-			mAutoSolveThread = null;
+		// the auto solve only touches its own copy of the game outside the EDT
+		if (mAutoSolve != null) {
+			mAutoSolve.stop();
+			mAutoSolve = null;
 		}
-		else
-			newGame(difficulty);
+
+		newGame(difficulty);
 	}
 
 	private void newGame(Difficulty difficulty) {
 		try {
 			mGame = new MinesGame(difficulty);
+			mGame.setJournalEnabled(true);
+			mSolver = new Solver(mGame);
+			precomputeHint();
 			mView.setSize(difficulty.width, difficulty.height);
 			mView.showRemainingMines(mGame.getRemainingMines());
 		}
@@ -56,20 +91,22 @@ public class Presenter implements Mvp.Presenter {
 			return;
 
 		openTile(x, y);
+		precomputeHint();
 
 		mView.clearHintTile();
 	}
 
 	private void openTile(int x, int y) {
-		List<Tile> revealed = new ArrayList<>();
-		mGame.openTile(x, y, revealed);
-
-		for (Tile tile : revealed)
-			mView.revealTile(tile.x, tile.y, mGame.getTile(tile.x, tile.y));
+		mGame.openTile(x, y, this::revealTile);
+		mRevealBatch.flush(mView);
 
 		checkGameOver();
 	}
 
+	private void revealTile(int x, int y) {
+		mRevealBatch.add(x, y, mGame.getTile(x, y));
+	}
+
 	private void checkGameOver() {
 		if (mGame.getGameState() == GameState.OVER_VICTORY)
 			mView.showVictoryMessage();
@@ -77,6 +114,7 @@ public class Presenter implements Mvp.Presenter {
 			List<Tile> revealMines = new ArrayList<>();
 			List<Tile> wrongMarkedMines = new ArrayList<>();
 			mGame.getDefeatReveal(revealMines, wrongMarkedMines);
+			mWrongFlags = wrongMarkedMines;
 
 			for (Tile tile : revealMines)
 				mView.concealTile(tile.x, tile.y, TileMark.MINE);
@@ -98,6 +136,7 @@ public class Presenter implements Mvp.Presenter {
 			mView.concealTile(x, y, mGame.getTileMark(x, y));
 
 			mView.showRemainingMines(mGame.getRemainingMines());
+			precomputeHint();
 		}
 
 		mView.clearHintTile();
@@ -108,15 +147,61 @@ public class Presenter implements Mvp.Presenter {
 		if (!canPlayerInteract())
 			return;
 
-		List<Tile> revealed = new ArrayList<>();
-		mGame.openNeighbours(x, y, revealed);
+		mGame.openNeighbours(x, y, this::revealTile);
+		mRevealBatch.flush(mView);
+
+		checkGameOver();
+		precomputeHint();
+
+		mView.clearHintTile();
+	}
+
+	@Override
+	public void onClickUndo() {
+		if (mAutoSolve != null)
+			return;
+
+		boolean lost = mGame.getGameState() == GameState.OVER_DEFEAT;
+		if (!mGame.undo(this::showTile))
+			return;
+
+		if (lost && mGame.getGameState() != GameState.OVER_DEFEAT) {
+			for (Tile tile : mWrongFlags)
+				mView.concealTile(tile.x, tile.y, mGame.getTileMark(tile.x, tile.y));
+			mWrongFlags = Collections.emptyList();
+			mView.clearBlowedTile();
+		}
+
+		journaledMoveShown();
+	}
+
+	@Override
+	public void onClickRedo() {
+		if (mAutoSolve != null)
+			return;
 
-		for (Tile tile : revealed)
-			mView.revealTile(tile.x, tile.y, mGame.getTile(tile.x, tile.y));
+		if (!mGame.redo(this::showTile))
+			return;
 
+		journaledMoveShown();
 		checkGameOver();
+	}
 
+	// A tile changed by undo or redo, shown from the game as it is now
+	private void showTile(int x, int y) {
+		if (!mGame.isRevealed(x, y))
+			mView.concealTile(x, y, mGame.getTileMark(x, y));
+		else if (mGame.getTile(x, y) == Tile.MINE && !mGame.getBlowedMine().equals(x, y))
+			mView.concealTile(x, y, TileMark.MINE);
+		else
+			revealTile(x, y);
+	}
+
+	private void journaledMoveShown() {
+		mRevealBatch.flush(mView);
+		mView.showRemainingMines(mGame.getRemainingMines());
 		mView.clearHintTile();
+		precomputeHint();
 	}
 
 	@Override
@@ -124,84 +209,237 @@ public class Presenter implements Mvp.Presenter {
 		if (!canPlayerInteract())
 			return;
 
-		Solver.Step step = new Solver(mGame).hint();
+		// computed here when the background one is not ready yet
+		PrecomputedHint hint = mPrecomputedHint;
+		Solver.Step step = hint != null && hint.isFor(mGame) ? hint.step : mSolver.hint();
 		if (step == null) {
 			mView.showNoHintWarning();
 			return;
 		}
 
 		executeSolverStep(step);
+		precomputeHint();
 		mView.setHintTile(step.x, step.y);
 	}
 
+	// Replaces any hint computed for an older state
+	private void precomputeHint() {
+		if (mHintTask != null)
+			mHintTask.cancel(true);
+
+		mHintTask = null;
+		mPrecomputedHint = null;
+
+		if (!mGame.isStarted() || mGame.isGameOver())
+			return;
+
+		final MinesGame game = mGame;
+		final long version = mGame.getVersion();
+		final MinesGame snapshot = mGame.snapshot();
+
+		mHintTask = mHintExecutor.submit(() -> {
+			Solver.Step step;
+			try (Solver solver = new Solver(snapshot)) {
+				step = solver.hint();
+			}
+			catch (CancellationException e) {
+				// replaced by the hint of a newer state
+				return;
+			}
+
+			PrecomputedHint hint = new PrecomputedHint(game, version, step);
+			SwingUtilities.invokeLater(() -> {
+				if (hint.isFor(mGame))
+					mPrecomputedHint = hint;
+			});
+		});
+	}
+
 	private void executeSolverStep(Solver.Step step) {
-		switch (step.stepType) {
-			case FLAG:
-				if (!mGame.isRevealed(step.x, step.y)) {
-					mGame.flagTile(step.x, step.y, TileMark.FLAG);
-					mView.concealTile(step.x, step.y, TileMark.FLAG);
+		executeSolverSteps(Collections.singletonList(step));
+	}
 
-					mView.showRemainingMines(mGame.getRemainingMines());
-				}
-				break;
-			case OPEN:
-				openTile(step.x, step.y);
-				break;
-		}
+	// The view is updated once, after all the steps. They are applied as the solver's auto solve does.
+	private void executeSolverSteps(List<Solver.Step> steps) {
+		final boolean[] flagged = {false};
+
+		Solver.AutoSolveListener listener = (step) -> {
+			step.execute(mGame, this::revealTile);
+			if (step.stepType == Solver.StepType.FLAG) {
+				mView.concealTile(step.x, step.y, TileMark.FLAG);
+				flagged[0] = true;
+			}
+			return true;
+		};
+		listener.onSteps(mGame, steps);
+
+		mRevealBatch.flush(mView);
+		if (flagged[0])
+			mView.showRemainingMines(mGame.getRemainingMines());
+
+		checkGameOver();
 	}
 
 	@Override
 	public void onClickAutoSolve() {
+		if (!canPlayerInteract())
+			return;
+
 		mView.clearHintTile();
 
-		mAutoSolveThread = new AutoSolveThread();
-		mAutoSolveThread.start();
+		// the copy would place different mines, so the first open is done here
+		if (!mGame.isStarted()) {
+			Solver.Step step = mSolver.guess();
+			if (step == null)
+				return;
+
+			executeSolverStep(step);
+			if (mGame.isGameOver())
+				return;
+		}
+
+		mAutoSolve = new AutoSolve(mGame);
+		mAutoSolve.start();
+	}
+
+	@Override
+	public void onSelectAutoSolveSpeed(AutoSolveSpeed speed) {
+		mAutoSolveSpeed = speed;
 	}
 
 	private boolean canPlayerInteract() {
-		return !mGame.isGameOver() && mAutoSolveThread == null;
+		return !mGame.isGameOver() && mAutoSolve == null;
 	}
 
-	private class AutoSolveThread extends Thread implements Solver.AutoSolveListener {
+	// The solver plays on its own copy of the game at full speed and publishes the steps through a bounded queue.
+	// A timer on the EDT applies them to the real game at the selected speed, applying the same steps in the same
+	// order keeps both games equal.
+	private class AutoSolve implements Solver.AutoSolveListener {
+		private final MinesGame mCopy;
+		private final BlockingQueue<Solver.Step> mQueue = new ArrayBlockingQueue<>(AUTO_SOLVE_QUEUE_CAPACITY);
+
+		private final Thread mThread;
+		private final Timer mTimer;
+
 		private volatile boolean mRunning = true;
+		private volatile boolean mSolverFinished = false;
 
-		private Runnable mStopSolvingCallback;
+		private final List<Solver.Step> mFrameSteps = new ArrayList<>();
+		private long mLastFrame;
+		private double mStepBudget = 0.0;
 
-		public void stopSolving(Runnable callback) {
-			mStopSolvingCallback = callback;
-			mRunning = false;
+		public AutoSolve(MinesGame game) {
+			mCopy = game.snapshot();
+			mThread = new Thread(this::solve, "AutoSolve");
+			mThread.setDaemon(true);
+			mTimer = new Timer(AUTO_SOLVE_FRAME_DELAY, (e) -> onFrame());
 		}
 
-		@Override
-		public void run() {
-			Solver solver = new Solver(mGame);
-			solver.autoSolve(this);
-			mAutoSolveThread = null;
+		public void start() {
+			mLastFrame = System.nanoTime();
+			mThread.start();
+			mTimer.start();
+		}
 
-			try {
-				SwingUtilities.invokeAndWait(() -> {
-					if (mStopSolvingCallback != null)
-						mStopSolvingCallback.run();
-				});
+		public void stop() {
+			mRunning = false;
+			mThread.interrupt();
+			mTimer.stop();
+		}
+
+		private void solve() {
+			try (Solver solver = new Solver(mCopy)) {
+				solver.autoSolve(this);
 			}
-			catch (Exception e) {
-				e.printStackTrace();
+			catch (CancellationException e) {
+				// stopped
 			}
+			mSolverFinished = true;
 		}
 
+		// Solver thread, blocks while the queue is full
 		@Override
-		public boolean onStep(final Solver.Step step) {
+		public boolean onStep(Solver.Step step) {
+			step.execute(mCopy, NO_REVEAL_LISTENER);
+
 			try {
-				SwingUtilities.invokeAndWait(() -> {
-					if (mRunning)
-						executeSolverStep(step);
-				});
+				mQueue.put(step);
 			}
-			catch (Exception e) {
-				e.printStackTrace();
+			catch (InterruptedException e) {
+				return false;
 			}
 
 			return mRunning;
 		}
+
+		private void onFrame() {
+			long now = System.nanoTime();
+			int steps = Integer.MAX_VALUE;
+			if (mAutoSolveSpeed != AutoSolveSpeed.INSTANT) {
+				mStepBudget += mAutoSolveSpeed.stepsPerSecond * (now - mLastFrame) / 1e9;
+				steps = (int) mStepBudget;
+				mStepBudget -= steps;
+			}
+			mLastFrame = now;
+
+			mFrameSteps.clear();
+			mQueue.drainTo(mFrameSteps, steps);
+
+			// the solver is behind, do not let the budget pile up
+			if (mFrameSteps.size() < steps)
+				mStepBudget = 0.0;
+
+			if (!mFrameSteps.isEmpty())
+				executeSolverSteps(mFrameSteps);
+
+			if (mGame.isGameOver() || (mSolverFinished && mQueue.isEmpty())) {
+				stop();
+				mAutoSolve = null;
+			}
+		}
+	}
+
+	// A hint, or null when there is none, valid while the game is at version
+	private static class PrecomputedHint {
+		public final MinesGame game;
+		public final long version;
+		public final Solver.Step step;
+
+		public PrecomputedHint(MinesGame g, long v, Solver.Step s) {
+			game = g;
+			version = v;
+			step = s;
+		}
+
+		public boolean isFor(MinesGame g) {
+			return game == g && version == g.getVersion();
+		}
+	}
+
+	// Tiles revealed since the last flush, sent to the view in a single call
+	private static class RevealBatch {
+		private int mXs[] = new int[64];
+		private int mYs[] = new int[64];
+		private int mValues[] = new int[64];
+		private int mCount = 0;
+
+		public void add(int x, int y, int value) {
+			if (mCount == mXs.length) {
+				mXs = Arrays.copyOf(mXs, mCount * 2);
+				mYs = Arrays.copyOf(mYs, mCount * 2);
+				mValues = Arrays.copyOf(mValues, mCount * 2);
+			}
+
+			mXs[mCount] = x;
+			mYs[mCount] = y;
+			mValues[mCount] = value;
+			++mCount;
+		}
+
+		public void flush(Mvp.View view) {
+			if (mCount > 0)
+				view.revealTiles(mXs, mYs, mValues, mCount);
+			mCount = 0;
+		}
 	}
 }
@@ -0,0 +1,155 @@
+package com.fbafelipe.jmines.ui;
+
+import com.fbafelipe.jmines.domain.TileMark;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// Every tile appearance rendered once for a tile size, drawing a tile is then a single drawImage.
+// The tiles are encoded as in BoardPanel: the revealed value (or REVEALED_MINE), or CONCEALED ored with the TileMark ordinal.
+class TileSprites {
+	private static final Color NUMBER_COLOR[] = {
+			new Color(0.0f, 0.0f, 0.0f, 0.0f),
+			new Color(0.012f, 0.012f, 0.510f),
+			new Color(0.016f, 0.514f, 0.016f),
+			new Color(0.584f, 0.502f, 0.169f),
+			new Color(0.435f, 0.141f, 0.373f),
+			new Color(0.557f, 0.016f, 0.016f),
+			new Color(0.722f, 0.384f, 0.063f),
+			new Color(0.235f, 0.235f, 0.235f),
+			new Color(0.204f, 0.204f, 0.204f)
+	};
+
+	private static final Color CONCEALED_BG_COLOR = new Color(0.75f, 0.75f, 0.75f);
+	private static final Color GRID_COLOR = Color.LIGHT_GRAY;
+
+	public static final byte REVEALED_MINE = 9;
+	public static final byte CONCEALED = 0x10;
+
+	// Revealed values 0 to 8 and the mine, then the concealed marks
+	private static final int REVEALED_SPRITES = REVEALED_MINE + 1;
+
+	private final int mTileWidth;
+	private final int mTileHeight;
+
+	private final Color mRevealedBgColor;
+	private final Image mFlagImage;
+	private final Image mWrongFlagImage;
+	private final Image mMineImage;
+
+	private final Font mNumberFont;
+	private final Image mSprites[] = new Image[REVEALED_SPRITES + TileMark.values().length];
+
+	// configuration may be null, then the sprites are plain BufferedImages
+	public TileSprites(int tileWidth, int tileHeight, GraphicsConfiguration configuration, Color revealedBgColor,
+			Image flagImage, Image wrongFlagImage, Image mineImage) {
+		mTileWidth = tileWidth;
+		mTileHeight = tileHeight;
+		mRevealedBgColor = revealedBgColor;
+		mFlagImage = flagImage;
+		mWrongFlagImage = wrongFlagImage;
+		mMineImage = mineImage;
+
+		for (int i = 0; i < mSprites.length; ++i) {
+			mSprites[i] = configuration != null ?
+					configuration.createCompatibleImage(tileWidth, tileHeight) :
+					new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+		}
+
+		Graphics2D g = (Graphics2D) mSprites[0].getGraphics();
+		mNumberFont = createNumberFont(g, tileWidth, tileHeight);
+		g.dispose();
+
+		for (int i = 0; i < mSprites.length; ++i) {
+			g = (Graphics2D) mSprites[i].getGraphics();
+			paint(g, i < REVEALED_SPRITES ? (byte) i : (byte) (CONCEALED | (i - REVEALED_SPRITES)), null, 0, 0);
+			g.dispose();
+		}
+	}
+
+	public boolean hasSize(int tileWidth, int tileHeight) {
+		return tileWidth == mTileWidth && tileHeight == mTileHeight;
+	}
+
+	public void draw(Graphics g, byte tile, int px, int py) {
+		int sprite = (tile & CONCEALED) == 0 ? tile : REVEALED_SPRITES + (tile & ~CONCEALED);
+		g.drawImage(mSprites[sprite], px, py, null);
+	}
+
+	// Paints the tile without the cache, bgColor replaces its usual background when not null
+	public void paint(Graphics2D g, byte tile, Color bgColor, int px, int py) {
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+		if ((tile & CONCEALED) == 0) {
+			g.setColor(bgColor != null ? bgColor : mRevealedBgColor);
+			g.fillRect(px, py, mTileWidth, mTileHeight);
+			g.setColor(GRID_COLOR);
+			g.drawRect(px, py, mTileWidth - 1, mTileHeight - 1);
+
+			if (tile == REVEALED_MINE)
+				paintImage(g, mMineImage, px, py);
+			else if (tile > 0)
+				paintText(g, String.valueOf(tile), NUMBER_COLOR[tile], px, py);
+			return;
+		}
+
+		g.setColor(bgColor != null ? bgColor : CONCEALED_BG_COLOR);
+		g.fill3DRect(px, py, mTileWidth, mTileHeight, true);
+
+		switch (TileMark.values()[tile & ~CONCEALED]) {
+			case FLAG:
+				paintImage(g, mFlagImage, px, py);
+				break;
+			case QUESTION_MARK:
+				paintText(g, "?", Color.BLACK, px, py);
+				break;
+			case WRONG_FLAG:
+				paintImage(g, mWrongFlagImage, px, py);
+				break;
+			case MINE:
+				paintImage(g, mMineImage, px, py);
+				break;
+			case NOTHING:
+			default:
+				break;
+		}
+	}
+
+	// Drawn at its own size, or scaled down when the tile is smaller
+	private void paintImage(Graphics2D g, Image image, int px, int py) {
+		int imageWidth = image.getWidth(null);
+		int imageHeight = image.getHeight(null);
+		if (imageWidth <= 0 || imageHeight <= 0)
+			return;
+
+		float scale = Math.min(1.0f, Math.min((float) (mTileWidth - 4) / imageWidth, (float) (mTileHeight - 4) / imageHeight));
+		int width = Math.max(1, Math.round(imageWidth * scale));
+		int height = Math.max(1, Math.round(imageHeight * scale));
+		g.drawImage(image, px + (mTileWidth - width) / 2, py + (mTileHeight - height) / 2, width, height, null);
+	}
+
+	private void paintText(Graphics2D g, String text, Color color, int px, int py) {
+		g.setFont(mNumberFont);
+		g.setColor(color);
+		FontMetrics fontMetrics = g.getFontMetrics();
+		g.drawString(text, px + (mTileWidth - fontMetrics.stringWidth(text)) / 2,
+				py + (mTileHeight + fontMetrics.getAscent() - fontMetrics.getDescent()) / 2);
+	}
+
+	// The largest bold font where a digit still fits in the tile
+	private static Font createNumberFont(Graphics2D g, int tileWidth, int tileHeight) {
+		Font labelFont = UIManager.getFont("Label.font");
+		labelFont = labelFont.deriveFont(labelFont.getStyle() | Font.BOLD);
+
+		FontMetrics fontMetrics = g.getFontMetrics(labelFont);
+		int stringWidth = fontMetrics.stringWidth("8");
+		int stringHeight = fontMetrics.getAscent();
+
+		float widthRatio = (float) Math.max(1, tileWidth - 4) / (float) stringWidth;
+		float heightRatio = (float) Math.max(1, tileHeight - 4) / (float) stringHeight;
+
+		return labelFont.deriveFont(Math.min(labelFont.getSize() * widthRatio, labelFont.getSize() * heightRatio));
+	}
+}
@@ -1,36 +1,17 @@
 package com.fbafelipe.jmines.ui;
 
 import com.fbafelipe.jmines.domain.Difficulty;
-import com.fbafelipe.jmines.domain.Tile;
 import com.fbafelipe.jmines.domain.TileMark;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
+import java.awt.event.KeyEvent;
 
 public class View implements Mvp.View {
-	private static final Color NUMBER_COLOR[] = {
-			new Color(0.0f, 0.0f, 0.0f, 0.0f),
-			new Color(0.012f, 0.012f, 0.510f),
-			new Color(0.016f, 0.514f, 0.016f),
-			new Color(0.584f, 0.502f, 0.169f),
-			new Color(0.435f, 0.141f, 0.373f),
-			new Color(0.557f, 0.016f, 0.016f),
-			new Color(0.722f, 0.384f, 0.063f),
-			new Color(0.235f, 0.235f, 0.235f),
-			new Color(0.204f, 0.204f, 0.204f)
-	};
-
-	private static final Color HINT_BG_COLOR = Color.ORANGE;
-	private static final Color BLOWED_MINE_BG_COLOR = Color.RED;
-
-	private static final Dimension TILE_PREFERRED_SIZE = new Dimension(50, 50);
-
 	private Mvp.Presenter mPresenter;
 
 	private JFrame mFrame;
-	private JPanel mGridPanel;
-	private JPanel mTiles[][];
+	private BoardPanel mBoard;
 
 	private JTextField mMinesRemaining;
 
@@ -38,10 +19,6 @@ public class View implements Mvp.View {
 	private ImageIcon mWrongFlagIcon;
 	private ImageIcon mMineIcon;
 
-	private Font mLabelFont;
-
-	private Tile mHint = new Tile(-1, -1);
-
 	public View() {
 		mFlagIcon = new ImageIcon("assets/flag.png");
 		mWrongFlagIcon = new ImageIcon("assets/wrong_flag.png");
@@ -50,18 +27,12 @@ public class View implements Mvp.View {
 		mFrame = new JFrame("JMines");
 		mFrame.getContentPane().setLayout(new BorderLayout());
 
-		mGridPanel = new JPanel();
-		mFrame.getContentPane().add(mGridPanel, BorderLayout.CENTER);
+		mBoard = new BoardPanel(mFlagIcon.getImage(), mWrongFlagIcon.getImage(), mMineIcon.getImage());
+		mFrame.getContentPane().add(new JScrollPane(mBoard), BorderLayout.CENTER);
 		mFrame.setIconImage(mMineIcon.getImage());
 
 		createHeader();
 		createMenu();
-		mFrame.addComponentListener(new ComponentAdapter() {
-			@Override
-			public void componentResized(ComponentEvent componentEvent) {
-				updateTileFontSize();
-			}
-		});
 		mFrame.setVisible(true);
 	}
 
@@ -84,6 +55,16 @@ public class View implements Mvp.View {
 		newGame.addActionListener((e) -> showNewGameDialog());
 		gameMenu.add(newGame);
 
+		JMenuItem undo = new JMenuItem("Undo");
+		undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.CTRL_DOWN_MASK));
+		undo.addActionListener((e) -> mPresenter.onClickUndo());
+		gameMenu.add(undo);
+
+		JMenuItem redo = new JMenuItem("Redo");
+		redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, KeyEvent.CTRL_DOWN_MASK));
+		redo.addActionListener((e) -> mPresenter.onClickRedo());
+		gameMenu.add(redo);
+
 		JMenuItem exit = new JMenuItem("Exit");
 		exit.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Q, KeyEvent.CTRL_DOWN_MASK));
 		exit.addActionListener((e) -> mPresenter.onClickExit());
@@ -91,6 +72,20 @@ public class View implements Mvp.View {
 
 		menuBar.add(gameMenu);
 
+		JMenu viewMenu = new JMenu("View");
+
+		JMenuItem zoomIn = new JMenuItem("Zoom In");
+		zoomIn.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, KeyEvent.CTRL_DOWN_MASK));
+		zoomIn.addActionListener((e) -> mBoard.zoomIn());
+		viewMenu.add(zoomIn);
+
+		JMenuItem zoomOut = new JMenuItem("Zoom Out");
+		zoomOut.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, KeyEvent.CTRL_DOWN_MASK));
+		zoomOut.addActionListener((e) -> mBoard.zoomOut());
+		viewMenu.add(zoomOut);
+
+		menuBar.add(viewMenu);
+
 		JMenu helpMenu = new JMenu("Help");
 
 		JMenuItem hint = new JMenuItem("Hint");
@@ -101,6 +96,16 @@ public class View implements Mvp.View {
 		autoSolve.addActionListener((e) -> mPresenter.onClickAutoSolve());
 		helpMenu.add(autoSolve);
 
+		JMenu autoSolveSpeed = new JMenu("Auto Solve Speed");
+		ButtonGroup speedGroup = new ButtonGroup();
+		for (AutoSolveSpeed speed : AutoSolveSpeed.values()) {
+			JRadioButtonMenuItem item = new JRadioButtonMenuItem(speed.label, speed == AutoSolveSpeed.NORMAL);
+			item.addActionListener((e) -> mPresenter.onSelectAutoSolveSpeed(speed));
+			speedGroup.add(item);
+			autoSolveSpeed.add(item);
+		}
+		helpMenu.add(autoSolveSpeed);
+
 		menuBar.add(helpMenu);
 
 		mFrame.setJMenuBar(menuBar);
@@ -115,166 +120,55 @@ public class View implements Mvp.View {
 	@Override
 	public void setPresenter(Mvp.Presenter presenter) {
 		mPresenter = presenter;
+		mBoard.setPresenter(presenter);
 	}
 
 	@Override
 	public void concealAll() {
-		setSize(mTiles.length, mTiles[0].length);
+		mBoard.concealAll();
 	}
 
 	@Override
 	public void setSize(int width, int height) {
-		mGridPanel.removeAll();
-		mGridPanel.setLayout(new GridLayout(height, width));
-
-		mTiles = new JPanel[width][height];
-
-		for (int y = 0; y < height; ++y) {
-			for (int x = 0; x < width; ++x) {
-				mTiles[x][y] = new JPanel(new BorderLayout());
-				concealTile(x, y, TileMark.NOTHING);
-
-				mTiles[x][y].setMinimumSize(TILE_PREFERRED_SIZE);
-				mTiles[x][y].setPreferredSize(TILE_PREFERRED_SIZE);
-				mGridPanel.add(mTiles[x][y]);
-			}
-		}
+		mBoard.setBoardSize(width, height);
 
 		mFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		mFrame.pack();
-
-
-		updateTileFontSize();
-	}
-
-	private void updateTileFontSize() {
-		int width = mGridPanel.getWidth() / mTiles.length - 4;
-		int height = mGridPanel.getHeight() / mTiles[0].length - 4;
-
-		if (width <= 0 || height <= 0)
-			return;
-
-		JLabel label = new JLabel();
-		Font labelFont = new JLabel().getFont();
-		labelFont = labelFont.deriveFont(labelFont.getStyle() | Font.BOLD);
-
-		FontMetrics fontMetrics = label.getFontMetrics(labelFont);
-		int stringWidth = fontMetrics.stringWidth("8");
-		int stringHeight = fontMetrics.getAscent();
-
-		// Find out how much the font can grow in width
-		float widthRatio = (float) width / (float) stringWidth;
-		float heightRatio = (float) height / (float) stringHeight;
-
-		float fontSize = Math.min(labelFont.getSize() * widthRatio, labelFont.getSize() * heightRatio);
-
-		mLabelFont = labelFont.deriveFont(fontSize);
-
-		for (Component component : mGridPanel.getComponents()) {
-			if (component instanceof JLabel) {
-				component.setFont(mLabelFont);
-				component.repaint();
-			}
-		}
 	}
 
 	@Override
 	public void revealTile(int x, int y, int value) {
-		JPanel container = mTiles[x][y];
-		container.removeAll();
-		JLabel label;
-
-		if (value > 0) {
-			label = new JLabel(String.valueOf(value), SwingConstants.CENTER);
-			label.setForeground(NUMBER_COLOR[value]);
-			label.setFont(mLabelFont);
-		}
-		else if (value == Tile.MINE) {
-			label = new JLabel(mMineIcon);
-		}
-		else
-			label = new JLabel();
-
-		container.add(label, BorderLayout.CENTER);
-
-		label.addMouseListener(new MouseAdapter() {
-			@Override
-			public void mouseClicked(MouseEvent mouseEvent) {
-				if (isMiddleMouseButton(mouseEvent))
-					mPresenter.onClickAutoOpenTile(x, y);
-			}
-		});
+		mBoard.revealTile(x, y, value);
+	}
 
-		container.validate();
+	@Override
+	public void revealTiles(int xs[], int ys[], int values[], int count) {
+		mBoard.revealTiles(xs, ys, values, count);
 	}
 
 	@Override
-	public void concealTile(final int x, final int y, TileMark tileMark) {
-		JPanel container = mTiles[x][y];
-		container.removeAll();
-		JButton button;
-
-		switch (tileMark) {
-			case FLAG:
-				button = new JButton(mFlagIcon);
-				break;
-			case QUESTION_MARK: {
-				button = new JButton("?");
-				Font f = button.getFont();
-				button.setFont(f.deriveFont(f.getStyle() | Font.BOLD));
-				break;
-			}
-			case WRONG_FLAG:
-				button = new JButton(mWrongFlagIcon);
-				break;
-			case MINE:
-				button = new JButton(mMineIcon);
-				break;
-			case NOTHING:
-			default:
-				button = new JButton();
-				break;
-		}
-		container.add(button, BorderLayout.CENTER);
-
-		button.addMouseListener(new MouseAdapter() {
-			@Override
-			public void mouseClicked(MouseEvent mouseEvent) {
-				if (SwingUtilities.isLeftMouseButton(mouseEvent))
-					mPresenter.onClickTile(x, y);
-				else if (SwingUtilities.isRightMouseButton(mouseEvent))
-					mPresenter.onClickToggleMarkTile(x, y);
-			}
-		});
-
-		container.validate();
+	public void concealTile(int x, int y, TileMark tileMark) {
+		mBoard.concealTile(x, y, tileMark);
 	}
 
 	@Override
 	public void setBlowedTile(int x, int y) {
-		for (Component c : mTiles[x][y].getComponents())
-			c.setBackground(BLOWED_MINE_BG_COLOR);
-		mTiles[x][y].setBackground(BLOWED_MINE_BG_COLOR);
+		mBoard.setBlowedTile(x, y);
 	}
 
 	@Override
-	public void setHintTile(int x, int y) {
-		clearHintTile();
-		mHint = new Tile(x, y);
+	public void clearBlowedTile() {
+		mBoard.clearBlowedTile();
+	}
 
-		for (Component c : mTiles[mHint.x][mHint.y].getComponents())
-			c.setBackground(HINT_BG_COLOR);
-		mTiles[mHint.x][mHint.y].setBackground(HINT_BG_COLOR);
+	@Override
+	public void setHintTile(int x, int y) {
+		mBoard.setHintTile(x, y);
 	}
 
 	@Override
 	public void clearHintTile() {
-		if (mHint.x >= 0 && mHint.y >= 0) {
-			for (Component c : mTiles[mHint.x][mHint.y].getComponents())
-				c.setBackground(null);
-			mTiles[mHint.x][mHint.y].setBackground(null);
-			mHint = new Tile(-1, -1);
-		}
+		mBoard.clearHintTile();
 	}
 
 	@Override
@@ -296,9 +190,4 @@ public class View implements Mvp.View {
 	public void showError(String message) {
 		JOptionPane.showMessageDialog(mFrame, message, "JMines", JOptionPane.ERROR_MESSAGE);
 	}
-
-	private boolean isMiddleMouseButton(MouseEvent mouseEvent) {
-		return SwingUtilities.isMiddleMouseButton(mouseEvent) ||
-				(SwingUtilities.isLeftMouseButton(mouseEvent) && SwingUtilities.isRightMouseButton(mouseEvent));
-	}
 }
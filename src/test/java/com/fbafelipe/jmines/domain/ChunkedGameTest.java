@@ -0,0 +1,94 @@
+package com.fbafelipe.jmines.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkedGameTest {
+	private static final MinesGame.TileVisitor NO_VISITOR = (x, y) -> {};
+
+	// Chunks around the first open, in each direction
+	private static final int RADIUS = 3;
+
+	private static final int MINES_PER_CHUNK = 200;
+
+	@Test
+	public void boardDoesNotDependOnChunkOrder() {
+		for (long seed = 0; seed < 10; ++seed) {
+			ChunkedGame forward = new ChunkedGame(seed, MINES_PER_CHUNK);
+			ChunkedGame backward = new ChunkedGame(seed, MINES_PER_CHUNK);
+			forward.openTile(5, 5, NO_VISITOR);
+			backward.openTile(5, 5, NO_VISITOR);
+
+			// explored in opposite directions until a mine is hit, then the whole area is read in opposite orders
+			loseWalking(forward, 1);
+			loseWalking(backward, -1);
+
+			int min = -RADIUS * ChunkedGame.CHUNK_SIZE;
+			int max = (RADIUS + 1) * ChunkedGame.CHUNK_SIZE - 1;
+			int tiles[][] = new int[max - min + 1][max - min + 1];
+			for (int y = min; y <= max; ++y) {
+				for (int x = min; x <= max; ++x)
+					tiles[y - min][x - min] = forward.getTile(x, y);
+			}
+			for (int y = max; y >= min; --y) {
+				for (int x = max; x >= min; --x)
+					assertEquals(tiles[y - min][x - min], backward.getTile(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void chunksHaveTheirMines() {
+		ChunkedGame game = new ChunkedGame(3, MINES_PER_CHUNK);
+		game.openTile(0, 0, NO_VISITOR);
+		loseWalking(game, 1);
+
+		for (int chunkY = -RADIUS; chunkY <= RADIUS; ++chunkY) {
+			for (int chunkX = -RADIUS; chunkX <= RADIUS; ++chunkX) {
+				int mines = 0;
+				for (int y = 0; y < ChunkedGame.CHUNK_SIZE; ++y) {
+					for (int x = 0; x < ChunkedGame.CHUNK_SIZE; ++x) {
+						if (game.getTile(chunkX * ChunkedGame.CHUNK_SIZE + x, chunkY * ChunkedGame.CHUNK_SIZE + y) == Tile.MINE)
+							++mines;
+					}
+				}
+				assertEquals(MINES_PER_CHUNK, mines);
+			}
+		}
+	}
+
+	@Test
+	public void firstOpenIsSafe() {
+		for (long seed = 0; seed < 200; ++seed) {
+			ChunkedGame game = new ChunkedGame(seed, ChunkedGame.CHUNK_SIZE * ChunkedGame.CHUNK_SIZE / 2);
+			game.openTile(17, -40, NO_VISITOR);
+
+			assertFalse(game.isGameOver());
+			assertNotEquals(Tile.MINE, game.getTile(17, -40));
+		}
+	}
+
+	@Test
+	public void markedTileDoesNotStartTheGame() {
+		ChunkedGame game = new ChunkedGame(7, MINES_PER_CHUNK);
+		game.flagTile(3, 3);
+		game.openTile(3, 3, NO_VISITOR);
+		assertFalse(game.isStarted());
+		assertEquals(0, game.getMinedChunks());
+
+		game.flagTile(3, 3, TileMark.NOTHING);
+		game.openTile(3, 3, NO_VISITOR);
+		assertTrue(game.isRevealed(3, 3));
+		assertFalse(game.isGameOver());
+	}
+
+	// Opens tiles along a line, one per chunk, until one of them is a mine
+	private static void loseWalking(ChunkedGame game, int direction) {
+		for (int i = 1; !game.isGameOver(); ++i)
+			game.openTile(5 + direction * i * (ChunkedGame.CHUNK_SIZE + 1), 5 + direction * i, NO_VISITOR);
+	}
+}
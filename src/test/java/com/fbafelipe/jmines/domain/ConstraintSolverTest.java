@@ -0,0 +1,152 @@
+package com.fbafelipe.jmines.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The analysis of small boards against the brute force enumeration of every placement of the remaining mines
+public class ConstraintSolverTest {
+	private static final MinesGame.TileVisitor NO_VISITOR = (x, y) -> {};
+
+	private static final double EPSILON = 1e-9;
+
+	@Test
+	public void analysisMatchesBruteForce() {
+		Random random = new Random(1);
+		int analyses = 0;
+		for (int game = 0; game < 300; ++game) {
+			MinesGame minesGame = new MinesGame(new Difficulty(5, 4, 3 + random.nextInt(5)), random.nextLong());
+			minesGame.openTile(random.nextInt(5), random.nextInt(4), NO_VISITOR);
+
+			ConstraintSolver solver = new ConstraintSolver(minesGame);
+			while (!minesGame.isGameOver()) {
+				checkAnalysis(minesGame, solver.analyze());
+				++analyses;
+
+				if (!playTruth(minesGame, random))
+					break;
+			}
+		}
+		assertTrue(analyses > 300);
+	}
+
+	// The mine probabilities, certainties included, are exact for the components small enough to enumerate
+	private static void checkAnalysis(MinesGame game, ConstraintSolver.Analysis analysis) {
+		assertNotNull(analysis);
+
+		int width = game.getWidth();
+		int tiles = width * game.getHeight();
+		int hidden[] = new int[tiles];
+		int hiddenCount = 0;
+		int flags = 0;
+		for (int i = 0; i < tiles; ++i) {
+			if (game.isRevealed(i % width, i / width))
+				continue;
+			if (game.getTileMark(i % width, i / width) == TileMark.FLAG)
+				++flags;
+			else
+				hidden[hiddenCount++] = i;
+		}
+
+		long placements = 0;
+		long mineCounts[] = new long[tiles];
+		int remaining = game.getDifficulty().mines - flags;
+		// the subsets of the hidden tiles with the remaining mines, in increasing order
+		for (long subset = (1L << remaining) - 1; subset < 1L << hiddenCount; ) {
+			if (isConsistent(game, hidden, subset)) {
+				++placements;
+				for (int i = 0; i < hiddenCount; ++i) {
+					if ((subset & 1L << i) != 0)
+						++mineCounts[hidden[i]];
+				}
+			}
+
+			if (subset == 0)
+				break;
+			long lowest = subset & -subset;
+			long carry = subset + lowest;
+			subset = carry | ((subset ^ carry) >>> 2) / lowest;
+		}
+		assertTrue(placements > 0);
+
+		boolean constrained[] = new boolean[tiles];
+		for (int i = 0; i < analysis.size(); ++i) {
+			int tile = analysis.getTile(i);
+			constrained[tile] = true;
+			double probability = mineCounts[tile] / (double) placements;
+			assertEquals(probability, analysis.getProbability(i), EPSILON);
+
+			byte certainty = analysis.getCertainty(i);
+			if (certainty == ConstraintSolver.SAFE)
+				assertEquals(0, mineCounts[tile]);
+			else if (certainty == ConstraintSolver.MINE)
+				assertEquals(placements, mineCounts[tile]);
+			else
+				assertTrue(mineCounts[tile] > 0 && mineCounts[tile] < placements);
+		}
+
+		int unconstrained = 0;
+		for (int i = 0; i < hiddenCount; ++i) {
+			if (constrained[hidden[i]])
+				continue;
+
+			++unconstrained;
+			assertEquals(mineCounts[hidden[i]] / (double) placements, analysis.unconstrainedProbability, EPSILON);
+		}
+		assertEquals(unconstrained, analysis.unconstrainedTiles);
+	}
+
+	// The revealed numbers count the flags and the mines of the subset
+	private static boolean isConsistent(MinesGame game, int hidden[], long subset) {
+		int width = game.getWidth();
+		int height = game.getHeight();
+		boolean mines[] = new boolean[width * height];
+		for (int i = 0; i < hidden.length; ++i) {
+			if ((subset & 1L << i) != 0)
+				mines[hidden[i]] = true;
+		}
+
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				if (!game.isRevealed(x, y))
+					continue;
+
+				int count = 0;
+				for (int ny = Math.max(y - 1, 0); ny < Math.min(y + 2, height); ++ny) {
+					for (int nx = Math.max(x - 1, 0); nx < Math.min(x + 2, width); ++nx) {
+						if (mines[ny * width + nx] || game.getTileMark(nx, ny) == TileMark.FLAG)
+							++count;
+					}
+				}
+				if (count != game.getTile(x, y))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	// Opens a safe tile or flags a mine, knowing where the mines are. Returns false when nothing is left.
+	private static boolean playTruth(MinesGame game, Random random) {
+		int width = game.getWidth();
+		int tiles = width * game.getHeight();
+		int start = random.nextInt(tiles);
+		for (int i = 0; i < tiles; ++i) {
+			int tile = (start + i) % tiles;
+			int x = tile % width;
+			int y = tile / width;
+			if (game.isRevealed(x, y) || game.getTileMark(x, y) == TileMark.FLAG)
+				continue;
+
+			if (game.getTile(x, y) != Tile.MINE)
+				game.openTile(x, y, NO_VISITOR);
+			else
+				game.flagTile(x, y, TileMark.FLAG);
+			return true;
+		}
+		return false;
+	}
+}
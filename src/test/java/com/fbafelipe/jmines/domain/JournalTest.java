@@ -0,0 +1,177 @@
+package com.fbafelipe.jmines.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The journal is tested through the undo, redo and rollback of MinesGame
+public class JournalTest {
+	private static final MinesGame.TileVisitor NO_VISITOR = (x, y) -> {};
+
+	@Test
+	public void undoAndRedoGoThroughTheSameStates() {
+		Random random = new Random(1);
+		for (int game = 0; game < 200; ++game) {
+			MinesGame minesGame = new MinesGame(new Difficulty(10, 8, 12), random.nextLong());
+			minesGame.setJournalEnabled(true);
+
+			List<String> states = new ArrayList<>();
+			states.add(describe(minesGame));
+			for (int move = 0; move < 30 && !minesGame.isGameOver(); ++move) {
+				int position = minesGame.getJournalPosition();
+				randomMove(minesGame, random);
+				if (minesGame.getJournalPosition() != position)
+					states.add(describe(minesGame));
+			}
+
+			for (int i = states.size() - 1; i > 0; --i) {
+				assertEquals(states.get(i), describe(minesGame));
+				assertTrue(minesGame.undo(NO_VISITOR));
+			}
+			assertEquals(states.get(0), describe(minesGame));
+			assertFalse(minesGame.undo(NO_VISITOR));
+
+			for (int i = 1; i < states.size(); ++i) {
+				assertTrue(minesGame.redo(NO_VISITOR));
+				assertEquals(states.get(i), describe(minesGame));
+			}
+			assertFalse(minesGame.redo(NO_VISITOR));
+		}
+	}
+
+	@Test
+	public void rollbackReturnsToThePosition() {
+		Random random = new Random(2);
+		for (int game = 0; game < 200; ++game) {
+			MinesGame minesGame = new MinesGame(new Difficulty(10, 8, 12), random.nextLong());
+			minesGame.setJournalEnabled(true);
+
+			List<String> states = new ArrayList<>();
+			states.add(describe(minesGame));
+			for (int move = 0; move < 20 && !minesGame.isGameOver(); ++move) {
+				randomMove(minesGame, random);
+				while (states.size() <= minesGame.getJournalPosition())
+					states.add(describe(minesGame));
+			}
+
+			int position = random.nextInt(minesGame.getJournalPosition() + 1);
+			minesGame.rollback(position);
+			assertEquals(position, minesGame.getJournalPosition());
+			assertEquals(states.get(position), describe(minesGame));
+			assertFalse(minesGame.canRedo());
+		}
+	}
+
+	@Test
+	public void moveThatChangesNothingKeepsTheRedo() {
+		MinesGame game = new MinesGame(Difficulty.MEDIUM, 7);
+		game.setJournalEnabled(true);
+		game.openTile(8, 8, NO_VISITOR);
+		Tile hidden = getHiddenTile(game, 0);
+		game.flagTile(hidden.x, hidden.y);
+		game.undo(NO_VISITOR);
+
+		// already revealed
+		game.openTile(8, 8, NO_VISITOR);
+		assertTrue(game.canRedo());
+
+		game.flagTile(hidden.x, hidden.y);
+		assertFalse(game.canRedo());
+	}
+
+	@Test
+	public void rollbackWithoutJournal() {
+		MinesGame game = new MinesGame(Difficulty.EASY, 1);
+		game.openTile(4, 4, NO_VISITOR);
+
+		game.rollback(0);
+		assertTrue(game.isRevealed(4, 4));
+		assertThrows(IllegalArgumentException.class, () -> game.rollback(1));
+	}
+
+	@Test
+	public void listenersFollowUndoAndRedo() {
+		MinesGame game = new MinesGame(Difficulty.MEDIUM, 3);
+		game.setJournalEnabled(true);
+		int moves[] = {0};
+		game.addMoveListener(new MinesGame.MoveListener() {
+			@Override
+			public void onMove(MoveType moveType, int x, int y, TileMark mark) {
+				++moves[0];
+			}
+
+			@Override
+			public void onUndo() {
+				--moves[0];
+			}
+
+			@Override
+			public void onRedo() {
+				++moves[0];
+			}
+		});
+
+		game.openTile(8, 8, NO_VISITOR);
+		game.openTile(8, 8, NO_VISITOR);
+		Tile first = getHiddenTile(game, 0);
+		Tile second = getHiddenTile(game, 1);
+		game.flagTile(first.x, first.y);
+		game.flagTile(second.x, second.y);
+		assertEquals(3, moves[0]);
+
+		game.undo(NO_VISITOR);
+		game.undo(NO_VISITOR);
+		game.redo(NO_VISITOR);
+		assertEquals(2, moves[0]);
+
+		game.rollback(0);
+		assertEquals(0, moves[0]);
+	}
+
+	private static void randomMove(MinesGame game, Random random) {
+		int x = random.nextInt(game.getWidth());
+		int y = random.nextInt(game.getHeight());
+		switch (random.nextInt(4)) {
+			case 0:
+				game.flagTile(x, y);
+				break;
+			case 1:
+				game.openNeighbours(x, y, NO_VISITOR);
+				break;
+			default:
+				game.openTile(x, y, NO_VISITOR);
+				break;
+		}
+	}
+
+	private static Tile getHiddenTile(MinesGame game, int skip) {
+		for (int y = 0; y < game.getHeight(); ++y) {
+			for (int x = 0; x < game.getWidth(); ++x) {
+				if (!game.isRevealed(x, y) && skip-- == 0)
+					return new Tile(x, y);
+			}
+		}
+		throw new IllegalStateException("No hidden tile");
+	}
+
+	private static String describe(MinesGame game) {
+		StringBuilder description = new StringBuilder();
+		description.append(game.getGameState()).append(' ').append(game.getRemainingMines()).append(' ')
+				.append(game.getRevealedTiles()).append(' ').append(game.isStarted()).append(' ');
+		for (int y = 0; y < game.getHeight(); ++y) {
+			for (int x = 0; x < game.getWidth(); ++x) {
+				description.append(game.isRevealed(x, y) ? 'r' : 'h').append(game.getTileMark(x, y).ordinal());
+				if (game.isStarted())
+					description.append(game.getTile(x, y) == Tile.MINE ? '*' : '.');
+			}
+		}
+		return description.toString();
+	}
+}
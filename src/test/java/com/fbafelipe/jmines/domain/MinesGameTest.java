@@ -0,0 +1,102 @@
+package com.fbafelipe.jmines.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinesGameTest {
+	private static final MinesGame.TileVisitor NO_VISITOR = (x, y) -> {};
+
+	@Test
+	public void sameSeedPlacesSameMines() {
+		for (long seed = 0; seed < 50; ++seed) {
+			MinesGame a = new MinesGame(Difficulty.HARD, seed);
+			MinesGame b = new MinesGame(Difficulty.HARD, seed, BoardStorage.OFF_HEAP);
+			a.openTile(7, 3, NO_VISITOR);
+			b.openTile(7, 3, NO_VISITOR);
+
+			assertEquals(getMines(a), getMines(b));
+			assertEquals(Difficulty.HARD.mines, getMines(a).cardinality());
+		}
+	}
+
+	@Test
+	public void otherSeedPlacesOtherMines() {
+		MinesGame a = new MinesGame(Difficulty.HARD, 1);
+		MinesGame b = new MinesGame(Difficulty.HARD, 2);
+		a.openTile(0, 0, NO_VISITOR);
+		b.openTile(0, 0, NO_VISITOR);
+
+		assertNotEquals(getMines(a), getMines(b));
+	}
+
+	@Test
+	public void firstOpenIsSafe() {
+		for (long seed = 0; seed < 200; ++seed) {
+			MinesGame game = new MinesGame(new Difficulty(9, 9, 80), seed);
+			game.openTile(4, 4, NO_VISITOR);
+
+			assertTrue(game.isRevealed(4, 4));
+			assertNotEquals(Tile.MINE, game.getTile(4, 4));
+		}
+	}
+
+	@Test
+	public void resetPlacesSameMinesAsNewGame() {
+		MinesGame game = new MinesGame(Difficulty.EASY, 3);
+		game.openTile(1, 1, NO_VISITOR);
+
+		game.reset(Difficulty.HARD, 9);
+		game.openTile(5, 5, NO_VISITOR);
+
+		MinesGame fresh = new MinesGame(Difficulty.HARD, 9);
+		fresh.openTile(5, 5, NO_VISITOR);
+		assertEquals(getMines(fresh), getMines(game));
+	}
+
+	@Test
+	public void snapshotOfUnstartedGamePlacesSameMines() {
+		MinesGame seeded = new MinesGame(Difficulty.HARD, 42);
+		MinesGame seededCopy = seeded.snapshot();
+		seeded.openTile(10, 10, NO_VISITOR);
+		seededCopy.openTile(10, 10, NO_VISITOR);
+
+		MinesGame fresh = new MinesGame(Difficulty.HARD, 42);
+		fresh.openTile(10, 10, NO_VISITOR);
+		assertEquals(getMines(fresh), getMines(seeded));
+		assertEquals(getMines(seeded), getMines(seededCopy));
+
+		MinesGame unseeded = new MinesGame(Difficulty.HARD);
+		MinesGame unseededCopy = unseeded.snapshot();
+		unseeded.openTile(10, 10, NO_VISITOR);
+		unseededCopy.openTile(10, 10, NO_VISITOR);
+		assertEquals(getMines(unseeded), getMines(unseededCopy));
+	}
+
+	@Test
+	public void redoneFirstOpenPlacesSameMines() {
+		MinesGame game = new MinesGame(Difficulty.HARD, 5);
+		game.setJournalEnabled(true);
+		game.openTile(3, 3, NO_VISITOR);
+		BitSet mines = getMines(game);
+
+		game.undo(NO_VISITOR);
+		game.openTile(3, 3, NO_VISITOR);
+		assertEquals(mines, getMines(game));
+	}
+
+	static BitSet getMines(MinesGame game) {
+		BitSet mines = new BitSet();
+		for (int y = 0; y < game.getHeight(); ++y) {
+			for (int x = 0; x < game.getWidth(); ++x) {
+				if (game.getTile(x, y) == Tile.MINE)
+					mines.set(y * game.getWidth() + x);
+			}
+		}
+		return mines;
+	}
+}
@@ -0,0 +1,173 @@
+package com.fbafelipe.jmines.persistence;
+
+import com.fbafelipe.jmines.domain.BoardStorage;
+import com.fbafelipe.jmines.domain.Difficulty;
+import com.fbafelipe.jmines.domain.MinesGame;
+import com.fbafelipe.jmines.domain.Tile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GameCodecTest {
+	private static final MinesGame.TileVisitor NO_VISITOR = (x, y) -> {};
+
+	private static final long VALUES[] = {
+			0, 1, 63, 64, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, 1L << 40, Long.MAX_VALUE,
+			-1, -64, -65, Integer.MIN_VALUE, Long.MIN_VALUE
+	};
+
+	@Test
+	public void varintRoundTrip() {
+		BinaryWriter out = new BinaryWriter(1);
+		for (long value : VALUES) {
+			out.writeVarint(value);
+			out.writeSignedVarint(value);
+		}
+
+		ByteBuffer in = out.asByteBuffer();
+		for (long value : VALUES) {
+			assertEquals(value, BinaryReader.readVarint(in));
+			assertEquals(value, BinaryReader.readSignedVarint(in));
+		}
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	public void smallVarintsTakeOneByte() {
+		BinaryWriter out = new BinaryWriter();
+		out.writeVarint(127);
+		out.writeSignedVarint(-64);
+		assertEquals(2, out.size());
+	}
+
+	@Test
+	public void bitsRoundTrip() {
+		Random random = new Random(1);
+		for (int length = 0; length < 100; ++length) {
+			BitSet bits = new BitSet();
+			for (int i = 0; i < length; ++i) {
+				if (random.nextBoolean())
+					bits.set(i);
+			}
+
+			BinaryWriter out = new BinaryWriter();
+			out.writeBits(bits, length);
+			out.writeByte(0x5A);
+
+			ByteBuffer in = out.asByteBuffer();
+			assertEquals(bits, BinaryReader.readBits(in, length));
+			assertEquals(0x5A, in.get());
+		}
+	}
+
+	@Test
+	public void gameRoundTrip() {
+		Random random = new Random(2);
+		for (int i = 0; i < 100; ++i) {
+			MinesGame game = new MinesGame(Difficulty.MEDIUM, random.nextLong());
+			MoveLog moves = new MoveLog(game.getWidth());
+			game.addMoveListener(moves);
+			play(game, random);
+
+			BinaryWriter out = new BinaryWriter();
+			GameCodec.write(game, moves, out);
+			GameRecord record = GameCodec.read(out.asByteBuffer());
+			assertEquals(game.getSeed(), record.seed);
+			assertEquals(moves.size(), record.moves.size());
+
+			BoardStorage storage = i % 2 == 0 ? BoardStorage.HEAP : BoardStorage.OFF_HEAP;
+			MinesGame loaded = record.toGame(storage);
+			assertEquals(storage, loaded.getStorage());
+			assertEquals(game.getSeed(), loaded.getSeed());
+			assertEquals(describe(game), describe(loaded));
+
+			// a loaded game can be written in the compact form, which is rebuilt by replaying its moves
+			BinaryWriter compact = new BinaryWriter();
+			GameCodec.writeCompact(loaded, record.moves, compact);
+			GameRecord compactRecord = GameCodec.read(compact.asByteBuffer());
+			assertNull(compactRecord.mines);
+			assertEquals(describe(game), describe(compactRecord.toGame()));
+		}
+	}
+
+	@Test
+	public void compactFormNeedsSeed() {
+		BitSet mines = new BitSet();
+		mines.set(0, Difficulty.EASY.mines);
+		MinesGame game = new MinesGame(Difficulty.EASY, mines);
+
+		assertThrows(IllegalArgumentException.class, () -> GameCodec.writeCompact(game, new MoveLog(9), new BinaryWriter()));
+	}
+
+	@Test
+	public void moveLogKeepsUndoneMovesUntilNextMove() {
+		Random random = new Random(3);
+		for (int i = 0; i < 100; ++i) {
+			long seed = random.nextLong();
+			MinesGame game = new MinesGame(Difficulty.MEDIUM, seed);
+			game.setJournalEnabled(true);
+			MoveLog moves = new MoveLog(game.getWidth());
+			game.addMoveListener(moves);
+
+			for (int step = 0; step < 40 && !game.isGameOver(); ++step) {
+				switch (random.nextInt(6)) {
+					case 0:
+						game.undo(NO_VISITOR);
+						break;
+					case 1:
+						game.redo(NO_VISITOR);
+						break;
+					case 2:
+						game.rollback(random.nextInt(game.getJournalPosition() + 1));
+						break;
+					default:
+						playOne(game, random);
+						break;
+				}
+
+				BinaryWriter out = new BinaryWriter();
+				moves.writeTo(out);
+				MoveLog read = MoveLog.read(out.asByteBuffer(), game.getWidth());
+				MinesGame replayed = new MinesGame(Difficulty.MEDIUM, seed);
+				read.replay(replayed, NO_VISITOR);
+				assertEquals(describe(game), describe(replayed));
+			}
+		}
+	}
+
+	private static void play(MinesGame game, Random random) {
+		for (int i = 0; i < 30 && !game.isGameOver(); ++i)
+			playOne(game, random);
+	}
+
+	private static void playOne(MinesGame game, Random random) {
+		int x = random.nextInt(game.getWidth());
+		int y = random.nextInt(game.getHeight());
+		if (random.nextInt(4) == 0)
+			game.flagTile(x, y);
+		else if (random.nextInt(4) == 0)
+			game.openNeighbours(x, y, NO_VISITOR);
+		else
+			game.openTile(x, y, NO_VISITOR);
+	}
+
+	private static String describe(MinesGame game) {
+		StringBuilder description = new StringBuilder();
+		description.append(game.getGameState()).append(' ').append(game.getRemainingMines()).append(' ');
+		for (int y = 0; y < game.getHeight(); ++y) {
+			for (int x = 0; x < game.getWidth(); ++x) {
+				description.append(game.isRevealed(x, y) ? 'r' : 'h').append(game.getTileMark(x, y).ordinal());
+				if (game.isStarted())
+					description.append(game.getTile(x, y) == Tile.MINE ? '*' : '.');
+			}
+		}
+		return description.toString();
+	}
+}